@@ -0,0 +1,132 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Keeps the last applied (term, index) of every tablet of a CDC stream and persists them to a
+ * local file, so that a restarted connector resumes from where it stopped instead of op 0.
+ *
+ * Updates are only kept in memory until {@link #flush()} is called, which rewrites the file
+ * atomically (write to a temporary file, then rename). A crash therefore replays at most the
+ * changes applied since the last flush, i.e. delivery is at-least-once.
+ */
+public class CheckpointStore {
+  private static final Logger LOG = Logger.getLogger(CheckpointStore.class);
+
+  private static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+
+  public static class Checkpoint {
+    public final long term;
+    public final long index;
+
+    public Checkpoint(long term, long index) {
+      this.term = term;
+      this.index = index;
+    }
+
+    @Override
+    public String toString() {
+      return term + "." + index;
+    }
+  }
+
+  // A null file means checkpoints are only kept in memory.
+  private final File file;
+
+  private final Map<String, Checkpoint> checkpoints = new HashMap<>();
+
+  private boolean dirty = false;
+
+  public CheckpointStore(String checkpointDir, String streamId) throws IOException {
+    if (checkpointDir == null || checkpointDir.isEmpty()) {
+      this.file = null;
+      return;
+    }
+    File dir = new File(checkpointDir);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException(String.format("Could not create checkpoint directory %s",
+                                          checkpointDir));
+    }
+    this.file = new File(dir, streamId + CHECKPOINT_FILE_SUFFIX);
+    load();
+  }
+
+  private void load() throws IOException {
+    if (!file.exists()) {
+      LOG.info(String.format("No checkpoints found in %s, starting from the beginning", file));
+      return;
+    }
+    Properties props = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      props.load(in);
+    }
+    for (String tabletId : props.stringPropertyNames()) {
+      String[] opId = props.getProperty(tabletId).split("\\.");
+      if (opId.length != 2) {
+        throw new IOException(String.format("Invalid checkpoint %s for tablet %s in %s",
+                                            props.getProperty(tabletId), tabletId, file));
+      }
+      checkpoints.put(tabletId,
+                      new Checkpoint(Long.parseLong(opId[0]), Long.parseLong(opId[1])));
+    }
+    LOG.info(String.format("Loaded checkpoints for %d tablets from %s", checkpoints.size(), file));
+  }
+
+  /**
+   * @return the last checkpoint recorded for the tablet, or (0, 0) if there is none.
+   */
+  public synchronized Checkpoint get(String tabletId) {
+    Checkpoint checkpoint = checkpoints.get(tabletId);
+    return checkpoint == null ? new Checkpoint(0, 0) : checkpoint;
+  }
+
+  public synchronized void update(String tabletId, long term, long index) {
+    checkpoints.put(tabletId, new Checkpoint(term, index));
+    dirty = true;
+  }
+
+  /**
+   * Write all the checkpoints to disk if any of them changed since the last flush.
+   */
+  public synchronized void flush() throws IOException {
+    if (file == null || !dirty) {
+      return;
+    }
+    Properties props = new Properties();
+    for (Map.Entry<String, Checkpoint> entry : checkpoints.entrySet()) {
+      props.setProperty(entry.getKey(), entry.getValue().toString());
+    }
+    File tmpFile = new File(file.getPath() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+      props.store(out, null);
+      out.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+    dirty = false;
+  }
+}
@@ -20,25 +20,101 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
 public class CmdLineOpts {
 
   private static final String DEFAULT_MASTER_ADDRS = "127.0.0.1:7100";
+  private static final int DEFAULT_MAX_INFLIGHT_POLLS = 64;
+  private static final long DEFAULT_CHECKPOINT_INTERVAL_MS = 1000;
+  private static final long DEFAULT_MAX_POLL_DELAY_MS = 1000;
+  private static final long DEFAULT_STATS_INTERVAL_MS = 60000;
+  private static final long DEFAULT_TABLET_REFRESH_INTERVAL_MS = 60000;
 
   private static final Logger LOG = Logger.getLogger(CmdLineOpts.class);
 
-  public String tableName;
-  public String namespaceName;
+  /**
+   * A table to stream, or a set of tables if the table name contains '*' wildcards.
+   */
+  public static class TableSpec {
+    public final String namespaceName;
+    public final String tableName;
+    private final Pattern tablePattern;
+
+    private TableSpec(String namespaceName, String tableName) {
+      this.namespaceName = namespaceName;
+      this.tableName = tableName;
+      StringBuilder regex = new StringBuilder();
+      for (String part : tableName.split("\\*", -1)) {
+        if (regex.length() > 0) {
+          regex.append(".*");
+        }
+        regex.append(Pattern.quote(part));
+      }
+      this.tablePattern = Pattern.compile(regex.toString());
+    }
+
+    static TableSpec parse(String fullTableName) throws Exception {
+      String[] parts = fullTableName.split("\\.");
+      if (parts.length != 2) {
+        throw new Exception(String.format("Expected a namespace and table name for " +
+                                          "--table_name in format <namespace>.<table>, got %s",
+                                          fullTableName));
+      }
+      return new TableSpec(parts[0], parts[1]);
+    }
+
+    public boolean isPattern() {
+      return tableName.contains("*");
+    }
+
+    public boolean matches(String namespaceName, String tableName) {
+      return this.namespaceName.equals(namespaceName) &&
+             tablePattern.matcher(tableName).matches();
+    }
+
+    @Override
+    public String toString() {
+      return namespaceName + "." + tableName;
+    }
+  }
+
+  public List<TableSpec> tables = new ArrayList<>();
   public String masterAddrs = DEFAULT_MASTER_ADDRS;
   public String streamId = "";
+  public String checkpointDir = "";
+  public long checkpointIntervalMs = DEFAULT_CHECKPOINT_INTERVAL_MS;
+  public int maxInflightPolls = DEFAULT_MAX_INFLIGHT_POLLS;
+  public long maxPollDelayMs = DEFAULT_MAX_POLL_DELAY_MS;
+  public long statsIntervalMs = DEFAULT_STATS_INTERVAL_MS;
+  public long tabletRefreshIntervalMs = DEFAULT_TABLET_REFRESH_INTERVAL_MS;
 
   public static CmdLineOpts createFromArgs(String[] args) throws Exception {
     Options options = new Options();
 
     options.addOption("master_addrs", true, "List of YB master ips to contact");
     options.addOption("table_name", true,
-            "Table to get change capture from in format <namespace>.<table>");
+            "Comma-separated list of tables to get change capture from in format " +
+            "<namespace>.<table>, where <table> may contain '*' wildcards");
     options.addOption("stream_id", true,
-            "Optional stream ID. Use this if you already have a CDC stream set up on the table");
+            "Optional stream ID. Use this if you already have a CDC stream set up on the table. " +
+            "Only valid when streaming a single table");
+    options.addOption("tablet_refresh_interval_ms", true,
+            "How often to look for new tables and tablets to stream, 0 to disable " +
+            "[default 60000]");
+    options.addOption("checkpoint_dir", true,
+            "Optional directory in which to persist the checkpoint of every tablet, so that a " +
+            "restarted connector resumes from where it stopped");
+    options.addOption("checkpoint_interval_ms", true,
+            "How often to persist checkpoints to checkpoint_dir [default 1000]");
+    options.addOption("max_inflight_polls", true,
+            "Maximum number of concurrent GetChanges calls across all tablets [default 64]");
+    options.addOption("max_poll_delay_ms", true,
+            "Maximum delay between two polls of an idle or failing tablet [default 1000]");
+    options.addOption("stats_interval_ms", true,
+            "How often to log polling rate and lag statistics, 0 to disable [default 60000]");
 
     // Do the actual arg parsing.
     CommandLineParser parser = new BasicParser();
@@ -71,18 +147,43 @@ public class CmdLineOpts {
       LOG.info("Defaulting master_addrs to 127.0.0.1:7100");
     }
 
-    String[] fullTableName = getRequiredOptionValue(commandLine, "table_name").split("\\.");
-
-    if (fullTableName.length != 2) {
-      throw new Exception(String.format("Expected a namespace and table name for --table_name in" +
-                                        " format <namespace>.<table>"));
+    for (String fullTableName : getRequiredOptionValue(commandLine, "table_name").split(",")) {
+      tables.add(TableSpec.parse(fullTableName.trim()));
     }
 
-    namespaceName = fullTableName[0];
-    tableName = fullTableName[1];
-
     if (commandLine.hasOption("stream_id")) {
       streamId = commandLine.getOptionValue("stream_id");
+      if (tables.size() != 1 || tables.get(0).isPattern()) {
+        throw new Exception("--stream_id can only be used when streaming a single table");
+      }
+    }
+
+    if (commandLine.hasOption("tablet_refresh_interval_ms")) {
+      tabletRefreshIntervalMs =
+          Long.parseLong(commandLine.getOptionValue("tablet_refresh_interval_ms"));
+    }
+
+    if (commandLine.hasOption("checkpoint_dir")) {
+      checkpointDir = commandLine.getOptionValue("checkpoint_dir");
+    }
+
+    if (commandLine.hasOption("checkpoint_interval_ms")) {
+      checkpointIntervalMs = Long.parseLong(commandLine.getOptionValue("checkpoint_interval_ms"));
+    }
+
+    if (commandLine.hasOption("max_inflight_polls")) {
+      maxInflightPolls = Integer.parseInt(commandLine.getOptionValue("max_inflight_polls"));
+      if (maxInflightPolls <= 0) {
+        throw new Exception("--max_inflight_polls must be greater than 0");
+      }
+    }
+
+    if (commandLine.hasOption("max_poll_delay_ms")) {
+      maxPollDelayMs = Long.parseLong(commandLine.getOptionValue("max_poll_delay_ms"));
+    }
+
+    if (commandLine.hasOption("stats_interval_ms")) {
+      statsIntervalMs = Long.parseLong(commandLine.getOptionValue("stats_interval_ms"));
     }
 
   }
@@ -21,9 +21,18 @@ import org.yb.client.ListTablesResponse;
 import org.yb.client.ListTabletServersResponse;
 import org.yb.client.LocatedTablet;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.*;
 import org.apache.log4j.Logger;
 import org.yb.master.Master;
@@ -35,21 +44,104 @@ class LogConnector {
   private static AsyncYBClient client;
   private static YBClient syncClient;
 
-  private ExecutorService executor;
+  private ScheduledExecutorService executor;
+
+  private ScheduledExecutorService checkpointFlusher;
 
   private static final int DEFAULT_TIMEOUT = 30000;
   private static final int DEFAULT_NUM_THREADS = 8;
 
-  private YBTable table;
+  // Name of the file in the checkpoint directory that maps table ids to the streams created for
+  // them, so that a restarted connector reuses the streams its checkpoints belong to.
+  private static final String STREAM_IDS_FILE = "streams.properties";
+
+  private List<CmdLineOpts.TableSpec> tableSpecs;
 
-  private List<Poller> pollers = new ArrayList<>();
+  // The tables being streamed, keyed by table id.
+  private final Map<String, TableStream> streams = new ConcurrentHashMap<>();
 
-  List<HostAndPort> hps = new ArrayList<>();
+  private final Properties streamIds = new Properties();
 
   private OutputClient outputClient;
 
   private String streamId;
 
+  private String checkpointDir;
+
+  private long checkpointIntervalMs;
+
+  private Semaphore inflightPolls;
+
+  private long maxPollDelayMs;
+
+  private long statsIntervalMs;
+
+  private long tabletRefreshIntervalMs;
+
+  private long lastStatsTimeMs;
+
+  private long lastNumPolls;
+
+  private long lastNumRecords;
+
+  /**
+   * A table being streamed along with the pollers of its tablets.
+   */
+  private class TableStream {
+    private final YBTable table;
+    private final String streamId;
+    private final CheckpointStore checkpointStore;
+    // Keyed by tablet id.
+    private final Map<String, Poller> pollers = new ConcurrentHashMap<>();
+
+    TableStream(YBTable table, String streamId) throws Exception {
+      this.table = table;
+      this.streamId = streamId;
+      this.checkpointStore = new CheckpointStore(checkpointDir, streamId);
+    }
+
+    /**
+     * Start polling the tablets of the table that are not polled yet, e.g. because they were
+     * just created by a split, and stop polling the tablets that are gone, e.g. split parents.
+     */
+    void refreshTablets() throws Exception {
+      List<LocatedTablet> tabletLocations = table.getTabletsLocations(DEFAULT_TIMEOUT);
+
+      Set<String> tabletIds = new HashSet<>();
+      for (LocatedTablet tablet : tabletLocations) {
+        tabletIds.add(new String(tablet.getTabletId()));
+      }
+      // A table always has tablets, no locations at all is a bad answer rather than a table
+      // whose tablets are all gone.
+      if (!tabletIds.isEmpty()) {
+        Iterator<Map.Entry<String, Poller>> it = pollers.entrySet().iterator();
+        while (it.hasNext()) {
+          Map.Entry<String, Poller> entry = it.next();
+          if (!tabletIds.contains(entry.getKey())) {
+            LOG.info(String.format("Stopped polling for tablet %s of table %s, it is gone",
+                                   entry.getKey(), table.getName()));
+            entry.getValue().stop();
+            it.remove();
+          }
+        }
+      }
+
+      for (LocatedTablet tablet : tabletLocations) {
+        String tabletId = new String(tablet.getTabletId());
+        if (pollers.containsKey(tabletId)) {
+          continue;
+        }
+        LOG.info(String.format("Polling for new tablet %s of table %s", tabletId,
+                               table.getName()));
+        Poller poller = new Poller(outputClient, table, streamId, tabletId,
+                                   tablet.getPartition().getPartitionKeyStart(), executor, client,
+                                   checkpointStore, inflightPolls, maxPollDelayMs);
+        pollers.put(tabletId, poller);
+        poller.poll();
+      }
+    }
+  }
+
   public LogConnector(CmdLineOpts opts) throws Exception {
     LOG.info("Creating new YB client...");
     client = new AsyncYBClient.AsyncYBClientBuilder(opts.masterAddrs)
@@ -60,52 +152,186 @@ class LogConnector {
 
     syncClient = new YBClient(client);
 
-    executor = Executors.newFixedThreadPool(DEFAULT_NUM_THREADS);
+    executor = Executors.newScheduledThreadPool(DEFAULT_NUM_THREADS);
+
+    outputClient = new LogClient();
+
+    tableSpecs = opts.tables;
+    streamId = opts.streamId;
+    checkpointDir = opts.checkpointDir;
+    checkpointIntervalMs = opts.checkpointIntervalMs;
+    inflightPolls = new Semaphore(opts.maxInflightPolls);
+    maxPollDelayMs = opts.maxPollDelayMs;
+    statsIntervalMs = opts.statsIntervalMs;
+    tabletRefreshIntervalMs = opts.tabletRefreshIntervalMs;
 
-    String tableId = null;
+    loadStreamIds();
+  }
+
+  public void run() throws Exception {
+    startCheckpointFlusher();
+
+    refreshStreams();
+    if (streams.isEmpty()) {
+      LOG.error(String.format("Could not find a table matching %s", tableSpecs));
+      System.exit(0);
+    }
+
+    if (tabletRefreshIntervalMs > 0) {
+      executor.scheduleWithFixedDelay(this::refreshStreamsAndLogErrors, tabletRefreshIntervalMs,
+                                      tabletRefreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    if (statsIntervalMs > 0) {
+      lastStatsTimeMs = System.currentTimeMillis();
+      executor.scheduleWithFixedDelay(this::logPollerStats, statsIntervalMs, statsIntervalMs,
+                                      TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private boolean matchesTableSpecs(Master.ListTablesResponsePB.TableInfo tableInfo) {
+    for (CmdLineOpts.TableSpec spec : tableSpecs) {
+      if (spec.matches(tableInfo.getNamespace().getName(), tableInfo.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Start streaming the tables that match the table specs and are not streamed yet, and start
+   * polling the tablets of the streamed tables that are not polled yet.
+   */
+  private synchronized void refreshStreams() throws Exception {
     ListTablesResponse tablesResp = syncClient.getTablesList();
     for (Master.ListTablesResponsePB.TableInfo tableInfo : tablesResp.getTableInfoList()) {
-      if (tableInfo.getName().equals(opts.tableName) &&
-          tableInfo.getNamespace().getName().equals(opts.namespaceName)) {
-        tableId =  tableInfo.getId().toStringUtf8();
+      String tableId = tableInfo.getId().toStringUtf8();
+      if (streams.containsKey(tableId) || !matchesTableSpecs(tableInfo)) {
+        continue;
       }
+      YBTable table = syncClient.openTableByUUID(tableId);
+      LOG.info(String.format("Streaming table %s.%s", tableInfo.getNamespace().getName(),
+                             tableInfo.getName()));
+      streams.put(tableId, new TableStream(table, getOrCreateStreamId(tableId)));
     }
 
-    if (tableId == null) {
-      LOG.error(String.format("Could not find a table with name %s.%s",
-                              opts.namespaceName, opts.tableName));
-      System.exit(0);
+    for (TableStream stream : streams.values()) {
+      stream.refreshTablets();
     }
+  }
+
+  private void refreshStreamsAndLogErrors() {
+    try {
+      refreshStreams();
+    } catch (Exception e) {
+      LOG.error("Failed to refresh the tables and tablets to stream", e);
+    }
+  }
 
-    table = syncClient.openTableByUUID(tableId);
+  private String getOrCreateStreamId(String tableId) throws Exception {
+    if (!streamId.isEmpty()) {
+      return streamId;
+    }
+    String id = streamIds.getProperty(tableId);
+    if (id != null) {
+      return id;
+    }
 
+    List<HostAndPort> hps = new ArrayList<>();
     ListTabletServersResponse serversResp = syncClient.listTabletServers();
     for (ServerInfo serverInfo : serversResp.getTabletServersList()) {
       hps.add(HostAndPort.fromParts(serverInfo.getHost(), serverInfo.getPort()));
     }
-
-    outputClient = new LogClient();
-
-    streamId = opts.streamId;
+    HostAndPort hp = hps.get(new Random().nextInt(hps.size()));
+    id = syncClient.createCDCStream(hp, tableId).getStreamId();
+    LOG.info(String.format("Created new stream with id %s for table %s", id, tableId));
+    streamIds.setProperty(tableId, id);
+    saveStreamIds();
+    return id;
   }
 
-  public void run() throws Exception {
-    Random rand = new Random();
+  private void loadStreamIds() throws Exception {
+    if (checkpointDir.isEmpty()) {
+      return;
+    }
+    File file = new File(checkpointDir, STREAM_IDS_FILE);
+    if (file.exists()) {
+      try (InputStream in = new FileInputStream(file)) {
+        streamIds.load(in);
+      }
+    }
+  }
 
-    HostAndPort hp = hps.get(rand.nextInt(hps.size()));
-    if (streamId.isEmpty()) {
-      streamId = syncClient.createCDCStream(hp, table.getTableId()).getStreamId();
-      LOG.info(String.format("Created new stream with id %s", streamId));
+  private void saveStreamIds() throws Exception {
+    if (checkpointDir.isEmpty()) {
+      return;
+    }
+    File dir = new File(checkpointDir);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new Exception(String.format("Could not create checkpoint directory %s",
+                                        checkpointDir));
     }
+    File file = new File(dir, STREAM_IDS_FILE);
+    File tmpFile = new File(dir, STREAM_IDS_FILE + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+      streamIds.store(out, null);
+      out.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE);
+  }
 
-    List<LocatedTablet> tabletLocations = table.getTabletsLocations(DEFAULT_TIMEOUT);
+  private void logPollerStats() {
+    long numPolls = 0;
+    long numRecords = 0;
+    long numFailedPolls = 0;
+    int numTablets = 0;
+    Poller mostLagging = null;
+    for (TableStream stream : streams.values()) {
+      for (Poller poller : stream.pollers.values()) {
+        numTablets++;
+        numPolls += poller.getNumPolls();
+        numRecords += poller.getNumRecords();
+        numFailedPolls += poller.getNumFailedPolls();
+        if (mostLagging == null || poller.getLagMs() > mostLagging.getLagMs()) {
+          mostLagging = poller;
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(String.format("Tablet %s: polls=%d empty=%d failed=%d records=%d lag=%dms",
+                                  poller.getTabletId(), poller.getNumPolls(),
+                                  poller.getNumEmptyPolls(), poller.getNumFailedPolls(),
+                                  poller.getNumRecords(), poller.getLagMs()));
+        }
+      }
+    }
+    long now = System.currentTimeMillis();
+    double elapsedSec = Math.max(1, now - lastStatsTimeMs) / 1000.0;
+    LOG.info(String.format("Polled %d tablets of %d tables: %.1f polls/sec, %.1f records/sec, " +
+                           "%d failed polls, max lag %dms (tablet %s)",
+                           numTablets, streams.size(), (numPolls - lastNumPolls) / elapsedSec,
+                           (numRecords - lastNumRecords) / elapsedSec, numFailedPolls,
+                           mostLagging == null ? 0 : mostLagging.getLagMs(),
+                           mostLagging == null ? "none" : mostLagging.getTabletId()));
+    lastStatsTimeMs = now;
+    lastNumPolls = numPolls;
+    lastNumRecords = numRecords;
+  }
 
-    for (LocatedTablet tablet : tabletLocations) {
-      String tabletId = new String(tablet.getTabletId());
-      LOG.info(String.format("Polling for new tablet %s", tabletId));
-      Poller poller = new Poller(outputClient, hps, table, streamId, tabletId, executor, client);
-      pollers.add(poller);
-      poller.poll();
+  private void flushCheckpoints() {
+    for (TableStream stream : streams.values()) {
+      try {
+        stream.checkpointStore.flush();
+      } catch (Exception e) {
+        LOG.error(String.format("Failed to persist checkpoints of stream %s", stream.streamId),
+                  e);
+      }
     }
   }
+
+  private void startCheckpointFlusher() {
+    checkpointFlusher = Executors.newSingleThreadScheduledExecutor();
+    checkpointFlusher.scheduleWithFixedDelay(this::flushCheckpoints, checkpointIntervalMs,
+                                             checkpointIntervalMs, TimeUnit.MILLISECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flushCheckpoints));
+  }
 }
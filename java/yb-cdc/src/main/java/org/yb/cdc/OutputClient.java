@@ -15,6 +15,22 @@ package org.yb.cdc;
 
 import org.yb.client.YBTable;
 
+import java.util.List;
+
 public interface OutputClient {
   public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception;
+
+  /**
+   * Apply a batch of changes that were read from a single tablet in one poll. The checkpoint for
+   * the tablet is only advanced once this method returns, so a sink must not return before the
+   * batch is durable on its side. Sinks that can write in bulk should override this method.
+   * @param table the table the changes belong to.
+   * @param changeRecords the changes, in the order they were read from the tablet.
+   */
+  default void applyChanges(YBTable table, List<CdcService.CDCRecordPB> changeRecords)
+      throws Exception {
+    for (CdcService.CDCRecordPB changeRecord : changeRecords) {
+      applyChange(table, changeRecord);
+    }
+  }
 }
@@ -18,62 +18,161 @@ import org.apache.log4j.Logger;
 import org.yb.client.AsyncYBClient;
 import org.yb.client.GetChangesResponse;
 import org.yb.client.YBTable;
+import org.yb.util.HybridTimeUtil;
 
-import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.List;
 
-import com.google.common.net.HostAndPort;
-
 
 public class Poller {
   private static final Logger LOG = Logger.getLogger(Poller.class);
 
+  // First delay used once a tablet returns no changes or an error. It is doubled on every
+  // consecutive empty or failed poll, up to maxPollDelayMs, and reset as soon as data flows.
+  private static final long INITIAL_POLL_DELAY_MS = 10;
+
+  // Delay before trying again to poll while the connector has as many polls in flight as allowed.
+  // The executor is shared with the other pollers, so a poll never waits on one of its threads.
+  private static final long FULL_WINDOW_DELAY_MS = 10;
+
   private long term;
   private long index;
   private String streamId;
   private String tabletId;
-  private ExecutorService executor;
+  private ScheduledExecutorService executor;
   private YBTable table;
   private AsyncYBClient client;
-  private List<HostAndPort> hps;
+  // Start key of the tablet's partition, the client uses it to find the tablet's leader.
+  private byte[] partitionKeyStart;
   private OutputClient outputClient;
-
-  public Poller(OutputClient outputClient, List<HostAndPort> hps, YBTable table, String streamId,
-                String tabletId, ExecutorService executor, AsyncYBClient client) {
+  private CheckpointStore checkpointStore;
+  // Shared by all the pollers of a connector to bound the number of GetChanges calls in flight.
+  private Semaphore inflightPolls;
+  private long maxPollDelayMs;
+  private long pollDelayMs = 0;
+  // Set once the tablet is gone, e.g. split, no poll is scheduled anymore.
+  private volatile boolean stopped = false;
+
+  // Stats, read concurrently by LogConnector.
+  private final AtomicLong numPolls = new AtomicLong();
+  private final AtomicLong numEmptyPolls = new AtomicLong();
+  private final AtomicLong numFailedPolls = new AtomicLong();
+  private final AtomicLong numRecords = new AtomicLong();
+  private volatile long lagMs = 0;
+
+  public Poller(OutputClient outputClient, YBTable table, String streamId, String tabletId,
+                byte[] partitionKeyStart, ScheduledExecutorService executor, AsyncYBClient client,
+                CheckpointStore checkpointStore, Semaphore inflightPolls, long maxPollDelayMs) {
     this.streamId = streamId;
     this.tabletId = tabletId;
-    this.term = 0;
-    this.index = 0;
+    CheckpointStore.Checkpoint checkpoint = checkpointStore.get(tabletId);
+    this.term = checkpoint.term;
+    this.index = checkpoint.index;
     this.executor = executor;
     this.client = client;
     this.table = table;
-    this.hps = hps;
+    this.partitionKeyStart = partitionKeyStart;
     this.outputClient = outputClient;
+    this.checkpointStore = checkpointStore;
+    this.inflightPolls = inflightPolls;
+    this.maxPollDelayMs = maxPollDelayMs;
+  }
+
+  public String getTabletId() {
+    return tabletId;
+  }
+
+  public long getNumPolls() {
+    return numPolls.get();
+  }
+
+  public long getNumEmptyPolls() {
+    return numEmptyPolls.get();
+  }
+
+  public long getNumFailedPolls() {
+    return numFailedPolls.get();
+  }
+
+  public long getNumRecords() {
+    return numRecords.get();
+  }
+
+  /**
+   * @return how far behind the tablet the last applied change was when it was applied, 0 once a
+   * poll returns no more changes.
+   */
+  public long getLagMs() {
+    return lagMs;
   }
 
   public Void poll() {
-    executor.submit(new Callable<Void>() {
+    return schedulePoll(0);
+  }
+
+  /**
+   * Stop polling the tablet. A poll in flight still applies its changes.
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  private Void schedulePoll(long delayMs) {
+    if (stopped) {
+      return null;
+    }
+    executor.schedule(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
         return doPoll();
       }
-    });
+    }, delayMs, TimeUnit.MILLISECONDS);
     return null;
   }
 
-  private Void doPoll() {
-    Random rand = new Random();
-    HostAndPort hp = hps.get(rand.nextInt(hps.size()));
+  /**
+   * Poll again after a delay that grows exponentially while the tablet is idle or failing.
+   */
+  private Void pollWithBackoff() {
+    pollDelayMs = pollDelayMs == 0 ?
+        INITIAL_POLL_DELAY_MS : Math.min(pollDelayMs * 2, maxPollDelayMs);
+    return schedulePoll(pollDelayMs);
+  }
 
-    client.getChanges(hp, table, streamId, tabletId, term, index,
-                      new Callback<Void, GetChangesResponse>() {
-      @Override
-      public Void call(GetChangesResponse getChangesResponse) throws Exception {
-        return handlePoll(getChangesResponse);
-      }
-    });
+  private Void doPoll() {
+    if (stopped) {
+      return null;
+    }
+    if (!inflightPolls.tryAcquire()) {
+      return schedulePoll(FULL_WINDOW_DELAY_MS);
+    }
+    numPolls.incrementAndGet();
+    try {
+      client.getChanges(table, streamId, tabletId, partitionKeyStart, term, index)
+          .addCallbacks(new Callback<Void, GetChangesResponse>() {
+        @Override
+        public Void call(GetChangesResponse getChangesResponse) throws Exception {
+          inflightPolls.release();
+          return handlePoll(getChangesResponse);
+        }
+      }, new Callback<Void, Exception>() {
+        @Override
+        public Void call(Exception e) throws Exception {
+          // Only errors from the RPC itself end up here, the callback above never throws.
+          inflightPolls.release();
+          numFailedPolls.incrementAndGet();
+          LOG.warn(String.format("Failed to get changes for tablet %s", tabletId), e);
+          return pollWithBackoff();
+        }
+      });
+    } catch (Exception e) {
+      inflightPolls.release();
+      throw e;
+    }
     return null;
   }
 
@@ -95,16 +194,42 @@ public class Poller {
         LOG.error("Invalid Request");
         System.exit(0);
       }
-      return poll();
+      numFailedPolls.incrementAndGet();
+      return pollWithBackoff();
     }
 
-    for (org.yb.cdc.CdcService.CDCRecordPB record : getChangesResponse.getResp().getRecordsList()) {
-      outputClient.applyChange(table, record);
+    List<CdcService.CDCRecordPB> records = getChangesResponse.getResp().getRecordsList();
+    if (records.isEmpty()) {
+      numEmptyPolls.incrementAndGet();
+      lagMs = 0;
+    } else {
+      try {
+        outputClient.applyChanges(table, records);
+      } catch (Exception e) {
+        // The checkpoint is not advanced, so the same batch is read and applied again.
+        LOG.error(String.format("Failed to apply %d changes for tablet %s, retrying",
+                                records.size(), tabletId), e);
+        numFailedPolls.incrementAndGet();
+        return pollWithBackoff();
+      }
+      numRecords.addAndGet(records.size());
+      long lastRecordMicros = HybridTimeUtil.HTTimestampToPhysicalAndLogical(
+          records.get(records.size() - 1).getTime())[0];
+      lagMs = Math.max(0, System.currentTimeMillis() - lastRecordMicros / 1000);
     }
 
-    this.term = getChangesResponse.getResp().getCheckpoint().getOpId().getTerm();
-    this.index = getChangesResponse.getResp().getCheckpoint().getOpId().getIndex();
+    long newTerm = getChangesResponse.getResp().getCheckpoint().getOpId().getTerm();
+    long newIndex = getChangesResponse.getResp().getCheckpoint().getOpId().getIndex();
+    if (newTerm != term || newIndex != index) {
+      this.term = newTerm;
+      this.index = newIndex;
+      checkpointStore.update(tabletId, term, index);
+    }
 
+    if (records.isEmpty()) {
+      return pollWithBackoff();
+    }
+    pollDelayMs = 0;
     return poll();
   }
 
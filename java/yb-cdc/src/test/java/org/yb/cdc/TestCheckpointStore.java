@@ -0,0 +1,71 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestCheckpointStore {
+
+  @Rule
+  public TemporaryFolder tmpDir = new TemporaryFolder();
+
+  @Test
+  public void testCheckpointsSurviveARestart() throws Exception {
+    String dir = tmpDir.getRoot().getPath();
+    CheckpointStore store = new CheckpointStore(dir, "stream");
+    assertEquals(0, store.get("tablet1").term);
+    assertEquals(0, store.get("tablet1").index);
+
+    store.update("tablet1", 2, 15);
+    store.update("tablet2", 1, 3);
+    // Nothing is written until the checkpoints are flushed.
+    assertFalse(new File(dir, "stream.checkpoint").exists());
+    store.flush();
+
+    CheckpointStore restarted = new CheckpointStore(dir, "stream");
+    assertEquals("2.15", restarted.get("tablet1").toString());
+    assertEquals("1.3", restarted.get("tablet2").toString());
+    // Checkpoints are kept per stream.
+    assertEquals("0.0", new CheckpointStore(dir, "otherStream").get("tablet1").toString());
+  }
+
+  @Test
+  public void testInMemoryWithoutADirectory() throws Exception {
+    CheckpointStore store = new CheckpointStore("", "stream");
+    store.update("tablet1", 2, 15);
+    store.flush();
+    assertEquals("2.15", store.get("tablet1").toString());
+    assertEquals(0, tmpDir.getRoot().list().length);
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidCheckpointFile() throws Exception {
+    Files.write(new File(tmpDir.getRoot(), "stream.checkpoint").toPath(),
+                "tablet1=15\n".getBytes(StandardCharsets.UTF_8));
+    new CheckpointStore(tmpDir.getRoot().getPath(), "stream");
+  }
+}
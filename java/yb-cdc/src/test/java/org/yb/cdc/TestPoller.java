@@ -0,0 +1,274 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.yb.AssertionWrappers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.yb.Opid;
+import org.yb.YBTestRunner;
+import org.yb.client.AsyncYBClient;
+import org.yb.client.GetChangesResponse;
+import org.yb.client.YBTable;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestPoller {
+
+  private static final String TABLET_ID = "tablet";
+  private static final long MAX_POLL_DELAY_MS = 40;
+  private static final long WAIT_TIMEOUT_MS = 10000;
+
+  private RecordingExecutor executor;
+  private AsyncYBClient client;
+  private CheckpointStore checkpointStore;
+  private RecordingOutputClient outputClient;
+
+  // The answers to the next GetChanges calls, a GetChangesResponse, an Exception or a Deferred
+  // the test completes itself. Calls made when it is empty never get an answer.
+  private final BlockingQueue<Object> answers = new LinkedBlockingQueue<>();
+  // The (term, index) every GetChanges call was made with.
+  private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+  /**
+   * Runs the pollers, recording the delay of every poll they schedule.
+   */
+  private static class RecordingExecutor extends ScheduledThreadPoolExecutor {
+    final List<Long> delaysMs = Collections.synchronizedList(new ArrayList<Long>());
+
+    RecordingExecutor(int numThreads) {
+      super(numThreads);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+      delaysMs.add(unit.toMillis(delay));
+      return super.schedule(callable, delay, unit);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+      // The parent submits through schedule(), which must only record the pollers' delays.
+      return super.schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Records the changes applied to it, and fails the first numFailures batches.
+   */
+  private static class RecordingOutputClient implements OutputClient {
+    final List<CdcService.CDCRecordPB> applied =
+        Collections.synchronizedList(new ArrayList<CdcService.CDCRecordPB>());
+    final AtomicInteger numFailures = new AtomicInteger();
+    final AtomicInteger numBatches = new AtomicInteger();
+
+    @Override
+    public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) {
+      applied.add(changeRecord);
+    }
+
+    @Override
+    public void applyChanges(YBTable table, List<CdcService.CDCRecordPB> changeRecords)
+        throws Exception {
+      numBatches.incrementAndGet();
+      if (numFailures.getAndDecrement() > 0) {
+        throw new Exception("Sink is down");
+      }
+      applied.addAll(changeRecords);
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    executor = new RecordingExecutor(1);
+    outputClient = new RecordingOutputClient();
+    checkpointStore = new CheckpointStore(null, "stream");
+    client = mock(AsyncYBClient.class);
+    when(client.getChanges(any(YBTable.class), anyString(), anyString(), any(byte[].class),
+                           anyLong(), anyLong()))
+        .thenAnswer(new Answer<Deferred<GetChangesResponse>>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Deferred<GetChangesResponse> answer(InvocationOnMock invocation) {
+        Object[] args = invocation.getArguments();
+        requests.add(args[4] + "." + args[5]);
+        Object answer = answers.poll();
+        if (answer == null) {
+          return new Deferred<GetChangesResponse>();
+        }
+        if (answer instanceof Deferred) {
+          return (Deferred<GetChangesResponse>) answer;
+        }
+        if (answer instanceof Exception) {
+          return Deferred.fromError((Exception) answer);
+        }
+        return Deferred.fromResult((GetChangesResponse) answer);
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private Poller newPoller(Semaphore inflightPolls) {
+    return new Poller(outputClient, null, "stream", TABLET_ID, new byte[0], executor, client,
+                      checkpointStore, inflightPolls, MAX_POLL_DELAY_MS);
+  }
+
+  private static GetChangesResponse response(long term, long index, int numRecords) {
+    CdcService.GetChangesResponsePB.Builder resp = CdcService.GetChangesResponsePB.newBuilder()
+        .setCheckpoint(CdcService.CDCCheckpointPB.newBuilder()
+            .setOpId(Opid.OpIdPB.newBuilder().setTerm(term).setIndex(index)));
+    for (int i = 0; i < numRecords; i++) {
+      // A hybrid time is the physical time in microseconds, shifted past the logical bits.
+      resp.addRecords(CdcService.CDCRecordPB.newBuilder()
+          .setTime((System.currentTimeMillis() * 1000) << 12)
+          .setOperation(CdcService.CDCRecordPB.OperationType.WRITE));
+    }
+    GetChangesResponse response = mock(GetChangesResponse.class);
+    when(response.getResp()).thenReturn(resp.build());
+    return response;
+  }
+
+  private void waitForRequests(int numRequests) throws Exception {
+    long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+    while (requests.size() < numRequests && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue("Got " + requests, requests.size() >= numRequests);
+  }
+
+  @Test(timeout = 30000)
+  public void testCheckpointAdvancesOnceChangesAreApplied() throws Exception {
+    answers.add(response(1, 5, 2));
+    answers.add(response(1, 7, 0));
+    Poller poller = newPoller(new Semaphore(10));
+    poller.poll();
+
+    waitForRequests(3);
+    assertEquals(Arrays.asList("0.0", "1.5", "1.7"), requests.subList(0, 3));
+    assertEquals(2, outputClient.applied.size());
+    assertEquals(1, checkpointStore.get(TABLET_ID).term);
+    assertEquals(7, checkpointStore.get(TABLET_ID).index);
+    assertEquals(2, poller.getNumRecords());
+    assertEquals(1, poller.getNumEmptyPolls());
+    assertEquals(0, poller.getNumFailedPolls());
+  }
+
+  @Test(timeout = 30000)
+  public void testFailedApplyIsReadAgain() throws Exception {
+    outputClient.numFailures.set(1);
+    answers.add(response(1, 5, 2));
+    answers.add(response(1, 5, 2));
+    Poller poller = newPoller(new Semaphore(10));
+    poller.poll();
+
+    // The batch the sink failed is read again from the same checkpoint.
+    waitForRequests(3);
+    assertEquals(Arrays.asList("0.0", "0.0", "1.5"), requests.subList(0, 3));
+    assertEquals(2, outputClient.numBatches.get());
+    assertEquals(2, outputClient.applied.size());
+    assertEquals(5, checkpointStore.get(TABLET_ID).index);
+    assertEquals(1, poller.getNumFailedPolls());
+  }
+
+  @Test(timeout = 30000)
+  public void testBackoffWhileIdleOrFailing() throws Exception {
+    answers.add(response(0, 0, 0));
+    answers.add(response(0, 0, 0));
+    answers.add(new Exception("Tablet server is down"));
+    answers.add(response(0, 0, 0));
+    answers.add(response(0, 0, 0));
+    answers.add(response(1, 5, 1));
+    answers.add(response(1, 5, 0));
+    Poller poller = newPoller(new Semaphore(10));
+    poller.poll();
+
+    waitForRequests(8);
+    // The delay doubles up to its maximum, and is reset once changes are read.
+    assertEquals(Arrays.asList(0L, 10L, 20L, 40L, 40L, 40L, 0L, 10L),
+                 executor.delaysMs.subList(0, 8));
+    assertEquals(1, poller.getNumFailedPolls());
+    assertEquals(5, poller.getNumEmptyPolls());
+  }
+
+  @Test(timeout = 30000)
+  public void testFullWindowDoesNotBlockTheExecutor() throws Exception {
+    Semaphore inflightPolls = new Semaphore(0);
+    Poller poller = newPoller(inflightPolls);
+    poller.poll();
+
+    // No poll is sent while the window is full, and the executor keeps running other tasks.
+    Thread.sleep(100);
+    assertTrue(requests.isEmpty());
+    assertEquals("ran", executor.submit(new Callable<String>() {
+      @Override
+      public String call() {
+        return "ran";
+      }
+    }).get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    inflightPolls.release();
+    waitForRequests(1);
+    assertEquals(0, inflightPolls.availablePermits());
+  }
+
+  @Test(timeout = 30000)
+  public void testStoppedPollerStopsPolling() throws Exception {
+    Poller poller = newPoller(new Semaphore(10));
+    poller.stop();
+    poller.poll();
+    Thread.sleep(100);
+    assertTrue(requests.isEmpty());
+
+    // A poller stopped while a poll is in flight doesn't poll again once it completes.
+    Deferred<GetChangesResponse> inflight = new Deferred<>();
+    answers.add(inflight);
+    Poller otherPoller = newPoller(new Semaphore(10));
+    otherPoller.poll();
+    waitForRequests(1);
+    otherPoller.stop();
+    inflight.callback(response(0, 0, 0));
+    Thread.sleep(200);
+    assertEquals(1, requests.size());
+    assertEquals(1, otherPoller.getNumEmptyPolls());
+  }
+}
@@ -93,25 +93,26 @@ import java.security.KeyStore;
 import java.io.FileInputStream;
 
 import javax.annotation.concurrent.GuardedBy;
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.SocketAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -155,6 +156,13 @@ public class AsyncYBClient implements AutoCloseable {
 
   public static final Logger LOG = LoggerFactory.getLogger(AsyncYBClient.class);
   public static final int SLEEP_TIME = 500;
+
+  /**
+   * Backoff between two checks of a condition waited for, never longer than the fixed
+   * {@link #SLEEP_TIME} the waits used to poll with.
+   */
+  private static final RetryPolicy DEFAULT_CONDITION_BACKOFF =
+      new ExponentialBackoffRetryPolicy(100, SLEEP_TIME);
   public static final byte[] EMPTY_ARRAY = new byte[0];
   public static final long NO_TIMESTAMP = -1;
   public static final long DEFAULT_OPERATION_TIMEOUT_MS = 10000;
@@ -166,50 +174,21 @@ public class AsyncYBClient implements AutoCloseable {
   private static final String MASTER_TABLET_ID = "00000000000000000000000000000000";
 
   /**
-   * This map and the next 2 maps contain the same data, but indexed
-   * differently. There is no consistency guarantee across the maps.
-   * They are not updated all at the same time atomically.  This map
-   * is always the first to be updated, because that's the map from
-   * which all the lookups are done in the fast-path of the requests
-   * that need to locate a tablet. The second map to be updated is
-   * tablet2client, because it comes second in the fast-path
-   * of every requests that need to locate a tablet. The third map
-   * is only used to handle TabletServer disconnections gracefully.
-   *
-   * This map is keyed by table ID.
-   */
-  private final ConcurrentHashMap<String, ConcurrentSkipListMap<byte[],
-      RemoteTablet>> tabletsCache = new ConcurrentHashMap<>();
-
-  /**
-   * Maps a tablet ID to the RemoteTablet that knows where all the replicas are served.
+   * Where the tablets of the tables are, and which tablets each connection serves.
    */
-  private final ConcurrentHashMap<Slice, RemoteTablet> tablet2client = new ConcurrentHashMap<>();
+  private final TabletLocationsCache tabletLocations;
 
   /**
-   * Maps a client connected to a TabletServer to the list of tablets we know
-   * it's serving so far.
-   */
-  private final ConcurrentHashMap<TabletClient, ArrayList<RemoteTablet>> client2tablets =
-      new ConcurrentHashMap<>();
-
-  /**
-   * Cache that maps a TabletServer address ("ip:port") to the clients
+   * Cache that maps a TabletServer address ("ip:port") to the pool of clients
    * connected to it.
    * <p>
-   * Access to this map must be synchronized by locking its monitor.
-   * Lock ordering: when locking both this map and a TabletClient, the
-   * TabletClient must always be locked first to avoid deadlocks.  Logging
-   * the contents of this map (or calling toString) requires copying it first.
-   * <p>
-   * This isn't a {@link ConcurrentHashMap} because we don't use it frequently
-   * (just when connecting to / disconnecting from TabletClients) and when we
-   * add something to it, we want to do an atomic get-and-put, but
-   * {@code putIfAbsent} isn't a good fit for us since it requires to create
-   * an object that may be "wasted" in case another thread wins the insertion
-   * race, and we don't want to create unnecessary connections.
+   * Reads don't lock anything: handing out a live client is a map lookup and
+   * a read of one of its pool's slots. A dead or empty slot is replaced with a
+   * compare-and-set before its channel is created, so a thread that loses the
+   * race only throws away a client that never connected and uses the winner's.
    * <p>
-   * Upon disconnection, clients are automatically removed from this map.
+   * Upon disconnection, clients are automatically removed from their pool, and the pool is
+   * dropped once it has no client left.
    * We don't use a {@code ChannelGroup} because a {@code ChannelGroup} does
    * the clean-up on the {@code channelClosed} event, which is actually the
    * 3rd and last event to be fired when a channel gets disconnected.  The
@@ -219,8 +198,77 @@ public class AsyncYBClient implements AutoCloseable {
    * that are going to cause unnecessary errors.
    * @see TabletClientPipeline#handleDisconnect
    */
-  private final HashMap<String, TabletClient> ip2client =
-      new HashMap<String, TabletClient>();
+  private final ConcurrentHashMap<String, ConnectionPool> ip2client =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Reverse index of {@link #ip2client}: the "ip:port" each client was created
+   * for, so that a disconnected client can be found without searching every
+   * pool, and before we know its remote address.
+   */
+  private final ConcurrentHashMap<TabletClient, String> client2ip =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The connections to one server. Each slot holds at most one client and is (re)connected the
+   * first time it is handed out after its previous client died. Slots are handed out in
+   * round-robin order, so the tablets of a server, and the worker threads reading their
+   * responses, are spread over all its connections.
+   * <p>
+   * Live clients are read from the slots without locking. Adding and removing clients lock the
+   * pool, so that a pool that lost its last client can be dropped without a client being added
+   * to it in the meantime.
+   */
+  private static final class ConnectionPool {
+    final AtomicReferenceArray<TabletClient> clients;
+    private final AtomicInteger next = new AtomicInteger();
+    @GuardedBy("this")
+    private boolean dropped = false;
+
+    ConnectionPool(int size) {
+      clients = new AtomicReferenceArray<>(size);
+    }
+
+    int nextSlot() {
+      return Math.abs(next.getAndIncrement() % clients.length());
+    }
+
+    /**
+     * Puts a client in a slot, if the slot still holds the expected client.
+     * @return false if the slot holds another client, or if the pool was dropped
+     */
+    synchronized boolean replace(int slot, TabletClient expected, TabletClient client) {
+      return !dropped && clients.compareAndSet(slot, expected, client);
+    }
+
+    /**
+     * Empties the slot of a client, unless it was already given to a new client.
+     * @return true if the pool has no client left, in which case it is dropped
+     */
+    synchronized boolean remove(TabletClient client) {
+      boolean empty = true;
+      for (int i = 0; i < clients.length(); i++) {
+        if (clients.get(i) == client) {
+          clients.set(i, null);
+        } else if (clients.get(i) != null) {
+          empty = false;
+        }
+      }
+      dropped = empty;
+      return empty;
+    }
+
+    synchronized boolean isDropped() {
+      return dropped;
+    }
+
+    @Override
+    public String toString() {
+      return clients.toString();
+    }
+  }
+
+  private final int connectionsPerServer;
 
   // Since the masters also go through TabletClient, we need to treat them as if they were a normal
   // table. We'll use the following fake table name to identify places where we need special
@@ -229,6 +277,20 @@ public class AsyncYBClient implements AutoCloseable {
   final YBTable masterTable;
   private final List<HostAndPort> masterAddresses;
 
+  /**
+   * How long a master lookup waits for the last known leader master to answer before asking the
+   * other masters as well.
+   */
+  static final long LEADER_MASTER_HINT_WAIT_MS = 100;
+
+  /**
+   * Address of the master last found to be the leader, null if unknown. Master lookups ask it
+   * first, and it's cleared when a master tells us it isn't the leader.
+   */
+  private volatile HostAndPort leaderMasterHint;
+
+  private volatile MasterRegistrationSource masterRegistrations = new MasterRegistrationRpcs();
+
   private final HashedWheelTimer timer = new HashedWheelTimer(20, MILLISECONDS);
 
   /**
@@ -252,7 +314,34 @@ public class AsyncYBClient implements AutoCloseable {
    */
   private final Semaphore masterLookups = new Semaphore(50);
 
-  private final Random sleepRandomizer = new Random();
+  /**
+   * Master lookups in flight, keyed by the table and the key range they look up. A cache miss on
+   * a range that is already being looked up waits for that lookup instead of sending its own
+   * GetTableLocations RPC, and then checks the cache again. Misses on other ranges of the same
+   * table send their own lookups.
+   * @see #locateTablet
+   */
+  private final ConcurrentHashMap<LookupRange, InflightLookup> inflightLookups =
+      new ConcurrentHashMap<>();
+
+  private final int tabletLocationsPrefetchCount;
+
+  private final AtomicBoolean injectWaitError = new AtomicBoolean(false);
+
+  private final RetryPolicy retryPolicy;
+
+  private final ReplicaSelectionPolicy replicaSelectionPolicy;
+
+  private final HostResolver hostResolver;
+
+  private final RpcStats rpcStats = new RpcStats();
+
+  /**
+   * Caps the retries of RPCs sent to user tablets, relative to the number of RPCs, so that a
+   * cluster that is failing requests isn't also flooded with retries. Null if retries aren't
+   * capped.
+   */
+  private final RetryBudget retryBudget;
 
   private final long defaultOperationTimeoutMs;
 
@@ -273,6 +362,15 @@ public class AsyncYBClient implements AutoCloseable {
     this.defaultAdminOperationTimeoutMs = b.defaultAdminOperationTimeoutMs;
     this.certFile = b.certFile;
     this.defaultSocketReadTimeoutMs = b.defaultSocketReadTimeoutMs;
+    this.tabletLocationsPrefetchCount = b.tabletLocationsPrefetchCount;
+    this.connectionsPerServer = b.connectionsPerServer;
+    this.retryPolicy = b.retryPolicy;
+    this.replicaSelectionPolicy = b.replicaSelectionPolicy;
+    this.hostResolver = new HostResolver(b.dnsCacheTtlMs);
+    this.tabletLocations = new TabletLocationsCache(b.tabletLocationsCacheMaxBytes,
+                                                    b.tabletLocationsCacheTtlMs);
+    this.retryBudget = b.retryRatio > 0 ?
+        new RetryBudget(b.retryRatio, b.minRetriesPerSec) : null;
   }
 
   /**
@@ -388,6 +486,28 @@ public class AsyncYBClient implements AutoCloseable {
     return d.addCallback(cb);
   }
 
+  /**
+   * Get changes for a given tablet and stream from the tablet's leader. The leader is looked up
+   * in the tablet cache. The other replicas don't serve the request, they reject it as not the
+   * leader, so when the leader is unavailable the tablet locations are refreshed from the master.
+   * @param table the table to get changes for.
+   * @param streamId the stream to get changes for.
+   * @param tabletId the tablet to get changes for.
+   * @param partitionKeyStart the start key of the tablet's partition.
+   * @param term the leader term to start getting changes for.
+   * @param index the log index to start get changes for.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<GetChangesResponse> getChanges(
+          YBTable table, String streamId, String tabletId, byte[] partitionKeyStart, long term,
+          long index) {
+    checkIsClosed();
+    GetChangesRequest rpc =
+        new GetChangesRequest(table, streamId, tabletId, partitionKeyStart, term, index);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    return sendRpcToTablet(rpc);
+  }
+
   /**
    * Check if the server is ready to serve requests.
    * @param hp host port of the server.
@@ -668,12 +788,14 @@ public class AsyncYBClient implements AutoCloseable {
    */
   protected void updateMasterAdresses(String host, int port, boolean isAdd) {
     checkIsClosed();
-    if (isAdd) {
-      masterAddresses.add(HostAndPort.fromParts(host, port));
-    } else {
-      int idx = masterAddresses.indexOf(HostAndPort.fromParts(host, port));
-      if (idx != -1) {
-        masterAddresses.remove(idx);
+    synchronized (masterAddresses) {
+      if (isAdd) {
+        masterAddresses.add(HostAndPort.fromParts(host, port));
+      } else {
+        int idx = masterAddresses.indexOf(HostAndPort.fromParts(host, port));
+        if (idx != -1) {
+          masterAddresses.remove(idx);
+        }
       }
     }
   }
@@ -770,6 +892,170 @@ public class AsyncYBClient implements AutoCloseable {
     return d;
   }
 
+  /**
+   * A condition checked asynchronously, see {@link #waitForCondition}.
+   */
+  public interface AsyncCondition {
+    /**
+     * @return a Deferred called back with whether the condition holds, or with an exception if
+     *         it couldn't be checked
+     */
+    Deferred<Boolean> get() throws Exception;
+  }
+
+  /**
+   * Waits until the given condition holds, checking it every {@link #SLEEP_TIME} ms at most.
+   * No thread is held between the checks, so any number of waits can run concurrently.
+   * @see #waitForCondition(AsyncCondition, long, RetryPolicy)
+   */
+  public Deferred<Boolean> waitForCondition(AsyncCondition condition, long timeoutMs) {
+    return waitForCondition(condition, timeoutMs, DEFAULT_CONDITION_BACKOFF);
+  }
+
+  /**
+   * Waits until the given condition holds. The condition is checked right away, then again after
+   * the backoff given by 'backoff' each time it doesn't hold or fails.
+   * @param condition the condition to wait for
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @param backoff how long to wait between two checks of the condition
+   * @return a Deferred called back with true once the condition holds, or with false if it
+   *         doesn't hold within timeoutMs or its checks failed too many times
+   */
+  public Deferred<Boolean> waitForCondition(AsyncCondition condition, long timeoutMs,
+                                            RetryPolicy backoff) {
+    checkIsClosed();
+    if (injectWaitError.compareAndSet(true, false)) {
+      condition = new FailFirstCheck(condition);
+    }
+    return ConditionWaiter.waitFor(this, condition, timeoutMs, backoff);
+  }
+
+  /**
+   * Quick and dirty error injection on the waits: the first check of the next condition waited
+   * for fails. After every use, for now, will get automatically disabled.
+   */
+  void injectWaitError() {
+    injectWaitError.set(true);
+  }
+
+  private static final class FailFirstCheck implements AsyncCondition {
+    private final AsyncCondition condition;
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+
+    FailFirstCheck(AsyncCondition condition) {
+      this.condition = condition;
+    }
+
+    public Deferred<Boolean> get() throws Exception {
+      if (failed.compareAndSet(false, true)) {
+        String msg = "Simulated expection due to injected error.";
+        LOG.info(msg);
+        return Deferred.fromError(new RuntimeException(msg));
+      }
+      return condition.get();
+    }
+  }
+
+  /**
+   * Wait for the specific server to come online.
+   * @param hp the HostAndPort of the server
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a Deferred called back with true if the server responded to pings in the given time,
+   *         false otherwise
+   */
+  public Deferred<Boolean> waitForServer(final HostAndPort hp, final long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      public Deferred<Boolean> get() {
+        return ping(hp).addCallback(new Callback<Boolean, PingResponse>() {
+          public Boolean call(final PingResponse resp) {
+            return true;
+          }
+        });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the tablet load to be balanced by master leader.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @param numServers expected number of servers which need to balanced.
+   * @return a Deferred called back with true if the master leader does not return any error
+   *         balance check.
+   */
+  public Deferred<Boolean> waitForLoadBalance(final long timeoutMs, final int numServers) {
+    return waitForCondition(new AsyncCondition() {
+      public Deferred<Boolean> get() {
+        return getIsLoadBalanced(numServers).addCallback(
+            new Callback<Boolean, IsLoadBalancedResponse>() {
+              public Boolean call(final IsLoadBalancedResponse resp) {
+                return !resp.hasError();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the load balancer to be idle as per the master leader.
+   * @param timeoutMs the amount of time, in MS, to wait
+   * @return a Deferred called back with true if the master leader does not return any error
+   *         balance check.
+   */
+  public Deferred<Boolean> waitForLoadBalancerIdle(final long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      public Deferred<Boolean> get() {
+        return getIsLoadBalancerIdle().addCallback(
+            new Callback<Boolean, IsLoadBalancerIdleResponse>() {
+              public Boolean call(final IsLoadBalancerIdleResponse resp) {
+                return !resp.hasError();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the leaders to be on the preferred zones only, as per the master leader.
+   * @param timeoutMs the amount of time, in MS, to wait.
+   * @return a Deferred called back with true iff the leaders are on the preferred zones within
+   *         timeoutMs.
+   */
+  public Deferred<Boolean> waitForAreLeadersOnPreferredOnly(final long timeoutMs) {
+    return waitForCondition(new AsyncCondition() {
+      public Deferred<Boolean> get() {
+        return getAreLeadersOnPreferredOnly().addCallback(
+            new Callback<Boolean, AreLeadersOnPreferredOnlyResponse>() {
+              public Boolean call(final AreLeadersOnPreferredOnlyResponse resp) {
+                return !resp.hasError();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
+  /**
+   * Wait for the given master to have the given universe key in memory.
+   * @param timeoutMs the amount of time, in MS, to wait.
+   * @return a Deferred called back with true iff the master has the key within timeoutMs.
+   */
+  public Deferred<Boolean> waitForMasterHasUniverseKeyInMemory(
+      final long timeoutMs, final String universeKeyId, final HostAndPort hp) {
+    return waitForCondition(new AsyncCondition() {
+      public Deferred<Boolean> get() throws Exception {
+        return hasUniverseKeyInMemory(universeKeyId, hp).addCallback(
+            new Callback<Boolean, HasUniverseKeyInMemoryResponse>() {
+              public Boolean call(final HasUniverseKeyInMemoryResponse resp) {
+                if (resp.getServerError() != null) {
+                  throw new RuntimeException("Could not add universe keys to " + hp.toString() +
+                      " with error: " + resp.getServerError().getStatus().getMessage());
+                }
+                return resp.hasKey();
+              }
+            });
+      }
+    }, timeoutMs);
+  }
+
   /**
    * Change Master Configuration request handler.
    *
@@ -1066,11 +1352,27 @@ public class AsyncYBClient implements AutoCloseable {
     return defaultSocketReadTimeoutMs;
   }
 
+  /**
+   * Get a snapshot of the RPC metrics of this client: latency per RPC method, retries by reason,
+   * tablet cache and master lookup counters, and how many RPCs are queued on its connections.
+   * @return a snapshot that won't change as the client keeps running
+   */
+  public RpcStatsSnapshot getRpcStats() {
+    return rpcStats.snapshot(getTableClients(), tabletLocations);
+  }
+
+  RpcStats getRpcStatsRecorder() {
+    return rpcStats;
+  }
+
   <R> Deferred<R> sendRpcToTablet(final YRpc<R> request) {
     if (cannotRetryRequest(request)) {
       return tooManyAttemptsOrTimeout(request, null);
     }
     request.attempt++;
+    if (request.attempt == 1 && usesRetryBudget(request)) {
+      retryBudget.deposit();
+    }
     final String tableId = request.getTable().getTableId();
     byte[] partitionKey = null;
     if (request instanceof YRpc.HasKey) {
@@ -1085,15 +1387,23 @@ public class AsyncYBClient implements AutoCloseable {
       request.setPropagatedTimestamp(lastPropagatedTs);
     }
 
+    final boolean isMaster = isMasterTable(tableId);
     if (tablet != null) {
-      TabletClient tabletClient = clientFor(tablet);
+      TabletClient tabletClient =
+          request.isFollowerReadAllowed() ? tablet.getClosestReplica() : clientFor(tablet);
       if (tabletClient != null) {
+        if (!isMaster) {
+          rpcStats.recordTabletCacheLookup(true);
+        }
         request.setTablet(tablet);
         final Deferred<R> d = request.getDeferred();
         tabletClient.sendRpc(request);
         return d;
       }
     }
+    if (!isMaster) {
+      rpcStats.recordTabletCacheLookup(false);
+    }
 
     // Right after creating a table a request will fall into locateTablet since we don't know yet
     // if the table is ready or not. If discoverTablets() didn't get any tablets back,
@@ -1157,11 +1467,10 @@ public class AsyncYBClient implements AutoCloseable {
     public Deferred<R> call(Exception arg) {
       if (arg instanceof NoLeaderMasterFoundException) {
         // If we could not find the leader master, try looking up the leader master
-        // again.
+        // again. RPCs that were queued on the same lookup all get here together, and their
+        // retries are coalesced again by locateTablet.
         Deferred<R> d = request.getDeferred();
-        // TODO: Handle the situation when multiple in-flight RPCs are queued waiting
-        // for the leader master to be determine (either after a failure or at initialization
-        // time). This could re-use some of the existing piping in place for non-master tablets.
+        rpcStats.recordRetry(RpcStats.RetryReason.NO_LEADER_MASTER);
         delayedSendRpcToTablet(request, (NoLeaderMasterFoundException) arg, null);
         return d;
       }
@@ -1290,8 +1599,8 @@ public class AsyncYBClient implements AutoCloseable {
           new Exception("Exception created to collect stack trace"));
       attemptCount = 1;
     }
-    // TODO backoffs? Sleep in increments of 500 ms, plus some random time up to 50
-    long sleepTime = (attemptCount * SLEEP_TIME) + sleepRandomizer.nextInt(50);
+    long sleepTime = retryPolicy.getSleepTimeMs(attemptCount, rpc.lastSleepTimeMs);
+    rpc.lastSleepTimeMs = sleepTime;
     if (LOG.isDebugEnabled()) {
       LOG.debug("Going to sleep for " + sleepTime + " at retry " + rpc.attempt);
     }
@@ -1307,25 +1616,42 @@ public class AsyncYBClient implements AutoCloseable {
    */
   @VisibleForTesting
   List<TabletClient> getTableClients() {
-    synchronized (ip2client) {
-      return new ArrayList<TabletClient>(ip2client.values());
-    }
+    return new ArrayList<TabletClient>(client2ip.keySet());
+  }
+
+  /** @return the number of servers we have a connection pool to */
+  @VisibleForTesting
+  int getNumConnectionPools() {
+    return ip2client.size();
   }
 
   /**
-   * This method first clears tabletsCache and then tablet2client without any regards for
-   * calls to {@link #discoverTablets}. Call only when AsyncYBClient is in a steady state.
+   * Drops the cached tablets of a table, without any regards for calls to
+   * {@link #discoverTablets}. Call only when AsyncYBClient is in a steady state.
    * @param tableId table for which we remove all the RemoteTablet entries
    */
   @VisibleForTesting
   void emptyTabletsCacheForTable(String tableId) {
-    tabletsCache.remove(tableId);
-    Set<Map.Entry<Slice, RemoteTablet>> tablets = tablet2client.entrySet();
-    for (Map.Entry<Slice, RemoteTablet> entry : tablets) {
-      if (entry.getValue().getTableId().equals(tableId)) {
-        tablets.remove(entry);
+    tabletLocations.invalidate(tableId);
+  }
+
+  @VisibleForTesting
+  TabletLocationsCache getTabletLocationsCache() {
+    return tabletLocations;
+  }
+
+  /**
+   * @return the number of master lookups in flight for the ranges of a table
+   */
+  @VisibleForTesting
+  int getNumInflightLookups(String tableId) {
+    int numLookups = 0;
+    for (LookupRange range : inflightLookups.keySet()) {
+      if (range.tableId.equals(tableId)) {
+        numLookups++;
       }
     }
+    return numLookups;
   }
 
   TabletClient clientFor(RemoteTablet tablet) {
@@ -1389,8 +1715,15 @@ public class AsyncYBClient implements AutoCloseable {
    * @return Deferred to track the progress
    */
   Deferred<Master.GetTableLocationsResponsePB> locateTablet(YBTable table, byte[] partitionKey) {
+    final String tableId = table.getTableId();
+    // Piggyback on a lookup of the same range that is already in flight, if there is one.
+    final LookupRange range = lookupRangeOf(tableId, partitionKey);
+    InflightLookup inflight = inflightLookups.get(range);
+    if (inflight != null) {
+      rpcStats.recordMasterLookupCoalesced();
+      return inflight.join();
+    }
     final boolean has_permit = acquireMasterLookupPermit();
-    String tableId = table.getTableId();
     if (!has_permit) {
       // If we failed to acquire a permit, it's worth checking if someone
       // looked up the tablet we're interested in.  Every once in a while
@@ -1400,10 +1733,24 @@ public class AsyncYBClient implements AutoCloseable {
         return Deferred.fromResult(null);  // Looks like no lookup needed.
       }
     }
+    final InflightLookup lookup = new InflightLookup();
+    inflight = inflightLookups.putIfAbsent(range, lookup);
+    if (inflight != null) {
+      // Someone started a lookup of this range while we were getting a permit.
+      if (has_permit) {
+        releaseMasterLookupPermit();
+      }
+      rpcStats.recordMasterLookupCoalesced();
+      return inflight.join();
+    }
+    // Ask for the tablets following the one we need as well, so that the RPCs for the next keys
+    // of the table are likely to find their tablet in the cache instead of looking it up.
     GetTableLocationsRequest rpc =
-        new GetTableLocationsRequest(masterTable, partitionKey, partitionKey, tableId);
+        new GetTableLocationsRequest(masterTable, partitionKey, null, tableId);
+    rpc.setMaxReturnedLocations(tabletLocationsPrefetchCount);
     rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
     final Deferred<Master.GetTableLocationsResponsePB> d;
+    rpcStats.recordMasterLookup();
 
     // If we know this is going to the master, check the master consensus configuration (as specified by
     // 'masterAddresses' field) to determine and cache the current leader.
@@ -1416,21 +1763,212 @@ public class AsyncYBClient implements AutoCloseable {
     if (has_permit) {
       d.addBoth(new ReleaseMasterLookupPermit<Master.GetTableLocationsResponsePB>());
     }
+    d.addBoth(new CompleteInflightLookup<Master.GetTableLocationsResponsePB>(range, lookup));
     return d;
   }
 
+  /**
+   * @return the key range a lookup of the tablet serving partitionKey is for: the range of the
+   *         cached tablet serving the key if there is one, e.g. when its leader is unknown, and
+   *         the key itself otherwise
+   */
+  private LookupRange lookupRangeOf(String tableId, byte[] partitionKey) {
+    RemoteTablet tablet = getTablet(tableId, partitionKey);
+    if (tablet != null) {
+      return new LookupRange(tableId, tablet.getPartition().getPartitionKeyStart());
+    }
+    return new LookupRange(tableId, partitionKey == null ? EMPTY_ARRAY : partitionKey);
+  }
+
+  /**
+   * The key range of a table a master lookup is for, identified by its start key.
+   */
+  private static final class LookupRange {
+    private final String tableId;
+    private final byte[] startKey;
+
+    LookupRange(String tableId, byte[] startKey) {
+      this.tableId = tableId;
+      this.startKey = startKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof LookupRange)) {
+        return false;
+      }
+      LookupRange other = (LookupRange) o;
+      return tableId.equals(other.tableId) && Arrays.equals(startKey, other.startKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * tableId.hashCode() + Arrays.hashCode(startKey);
+    }
+  }
+
+  /**
+   * Wakes up the RPCs waiting on a lookup, whether it succeeded or not. Generic like
+   * {@link ReleaseMasterLookupPermit}, so that an exception gets through the erased callback
+   * without being cast to a response.
+   */
+  private final class CompleteInflightLookup<T> implements Callback<T, T> {
+    private final LookupRange range;
+    private final InflightLookup lookup;
+
+    CompleteInflightLookup(LookupRange range, InflightLookup lookup) {
+      this.range = range;
+      this.lookup = lookup;
+    }
+
+    public T call(final T arg) {
+      // Remove the lookup first so that the waiters that still miss the cache start a new one.
+      inflightLookups.remove(range, lookup);
+      lookup.complete(arg);
+      return arg;
+    }
+
+    public String toString() {
+      return "wake up the RPCs waiting on the lookup of table " + range.tableId;
+    }
+  }
+
+  /**
+   * A master lookup in flight that RPCs missing the tablet cache for the same table can wait on.
+   * Every waiter gets its own Deferred, called back with the outcome of the lookup (null or an
+   * exception), since callbacks added to a shared Deferred would run one after the other on the
+   * same chain.
+   */
+  private static final class InflightLookup {
+    @GuardedBy("this")
+    private final List<Deferred<Master.GetTableLocationsResponsePB>> waiters = new ArrayList<>();
+    @GuardedBy("this")
+    private boolean done = false;
+    @GuardedBy("this")
+    private Object result;
+
+    Deferred<Master.GetTableLocationsResponsePB> join() {
+      final Deferred<Master.GetTableLocationsResponsePB> d = new Deferred<>();
+      final Object outcome;
+      synchronized (this) {
+        if (!done) {
+          waiters.add(d);
+          return d;
+        }
+        outcome = result;
+      }
+      d.callback(outcome);
+      return d;
+    }
+
+    void complete(Object outcome) {
+      final List<Deferred<Master.GetTableLocationsResponsePB>> toWake;
+      synchronized (this) {
+        done = true;
+        result = outcome;
+        toWake = new ArrayList<>(waiters);
+        waiters.clear();
+      }
+      for (Deferred<Master.GetTableLocationsResponsePB> d : toWake) {
+        d.callback(outcome);
+      }
+    }
+  }
+
   /**
    * Update the master config: send RPCs to all config members, use the returned data to
    * fill a {@link Master.GetTabletLocationsResponsePB} object.
+   *
+   * The masters are asked concurrently and the first one answering that it is the leader wins,
+   * so a master that is down doesn't delay the lookup. When the leader is known from a previous
+   * lookup, it is asked first and the other masters are only asked if it doesn't answer as the
+   * leader within {@link #LEADER_MASTER_HINT_WAIT_MS}.
    * @return An initialized Deferred object to hold the response.
    */
   Deferred<Master.GetTableLocationsResponsePB> getMasterTableLocationsPB() {
     final Deferred<Master.GetTableLocationsResponsePB> responseD =
         new Deferred<Master.GetTableLocationsResponsePB>();
+    // The master addresses can be updated while we're asking them.
+    final List<HostAndPort> masters;
+    synchronized (masterAddresses) {
+      masters = new ArrayList<HostAndPort>(masterAddresses);
+    }
     final GetMasterRegistrationReceived received =
-        new GetMasterRegistrationReceived(masterAddresses, responseD);
-    for (HostAndPort hostAndPort : masterAddresses) {
-      Deferred<GetMasterRegistrationResponse> d;
+        new GetMasterRegistrationReceived(masters, responseD);
+    responseD.addCallback(new Callback<Object, Master.GetTableLocationsResponsePB>() {
+      public Object call(final Master.GetTableLocationsResponsePB response) {
+        leaderMasterHint = ProtobufHelper.hostAndPortFromPB(
+            response.getTabletLocations(0).getReplicas(0).getTsInfo().getPrivateRpcAddresses(0));
+        return response;
+      }
+      public String toString() {
+        return "remember the leader master";
+      }
+    });
+
+    final HostAndPort hint = leaderMasterHint;
+    if (hint == null || masters.size() == 1 || !masters.contains(hint)) {
+      for (HostAndPort hostAndPort : masters) {
+        askMasterRegistration(hostAndPort, received);
+      }
+      return responseD;
+    }
+
+    // Ask the other masters once, when the hinted leader turns out not to be the leader, fails,
+    // or takes too long to answer.
+    final AtomicBoolean askedOthers = new AtomicBoolean(false);
+    final class AskOtherMasters implements TimerTask {
+      public void run(final Timeout timeout) {
+        if (received.isDone() || !askedOthers.compareAndSet(false, true)) {
+          return;
+        }
+        for (HostAndPort hostAndPort : masters) {
+          if (!hostAndPort.equals(hint)) {
+            askMasterRegistration(hostAndPort, received);
+          }
+        }
+      }
+    }
+    askMasterRegistration(hint, received).addBoth(
+        new Callback<Void, Void>() {
+          public Void call(final Void arg) {
+            if (!received.isDone()) {
+              LOG.debug("Master {} is no longer the leader, asking all the masters", hint);
+              leaderMasterHint = null;
+              new AskOtherMasters().run(null);
+            }
+            return null;
+          }
+          public String toString() {
+            return "ask the other masters if " + hint + " isn't the leader";
+          }
+        });
+    newTimeout(new AskOtherMasters(), LEADER_MASTER_HINT_WAIT_MS);
+    return responseD;
+  }
+
+  /**
+   * Sends a GetMasterRegistration RPC to the given master, passing its outcome to 'received'.
+   * @return the Deferred of the RPC, called back once 'received' processed the outcome
+   */
+  private Deferred<Void> askMasterRegistration(HostAndPort hostAndPort,
+                                               GetMasterRegistrationReceived received) {
+    return masterRegistrations.get(hostAndPort).addCallbacks(
+        received.callbackForNode(hostAndPort), received.errbackForNode(hostAndPort));
+  }
+
+  /**
+   * Where master lookups get the registration of each master from.
+   */
+  interface MasterRegistrationSource {
+    Deferred<GetMasterRegistrationResponse> get(HostAndPort hostAndPort);
+  }
+
+  private final class MasterRegistrationRpcs implements MasterRegistrationSource {
+    public Deferred<GetMasterRegistrationResponse> get(HostAndPort hostAndPort) {
       // Note: we need to create a client for that host first, as there's a
       // chicken and egg problem: since there is no source of truth beyond
       // the master, the only way to get information about a master host is
@@ -1439,13 +1977,41 @@ public class AsyncYBClient implements AutoCloseable {
       if (clientForHostAndPort == null) {
         String message = "Couldn't resolve this master's address " + hostAndPort.toString();
         LOG.warn(message);
-        d = Deferred.fromError(new NonRecoverableException(message));
-      } else {
-        d = getMasterRegistration(clientForHostAndPort);
+        return Deferred.fromError(new NonRecoverableException(message));
       }
-      d.addCallbacks(received.callbackForNode(hostAndPort), received.errbackForNode(hostAndPort));
+      return getMasterRegistration(clientForHostAndPort);
     }
-    return responseD;
+  }
+
+  /**
+   * Replaces the RPCs master lookups send to get the registrations of the masters.
+   */
+  @VisibleForTesting
+  void setMasterRegistrationSource(MasterRegistrationSource source) {
+    masterRegistrations = source;
+  }
+
+  @VisibleForTesting
+  HostAndPort getLeaderMasterHint() {
+    return leaderMasterHint;
+  }
+
+  /**
+   * Finds the leader master, asking all the masters concurrently.
+   * @see #getMasterTableLocationsPB
+   * @return a Deferred called back with the registration of the leader master, or with a
+   *         {@link NoLeaderMasterFoundException} if no master answered as the leader
+   */
+  Deferred<Master.TSInfoPB> getLeaderMasterInfo() {
+    return getMasterTableLocationsPB().addCallback(
+        new Callback<Master.TSInfoPB, Master.GetTableLocationsResponsePB>() {
+          public Master.TSInfoPB call(final Master.GetTableLocationsResponsePB response) {
+            return response.getTabletLocations(0).getReplicas(0).getTsInfo();
+          }
+          public String toString() {
+            return "get the leader master info";
+          }
+        });
   }
 
   /**
@@ -1540,7 +2106,9 @@ public class AsyncYBClient implements AutoCloseable {
    */
   <R> void handleTabletNotFound(final YRpc<R> rpc, YBException ex, TabletClient server) {
     invalidateTabletCache(rpc.getTablet(), server);
-    handleRetryableError(rpc, ex, server);
+    rpcStats.recordRetry(ex instanceof ConnectionResetException ?
+        RpcStats.RetryReason.CONNECTION_RESET : RpcStats.RetryReason.TABLET_NOT_FOUND);
+    retryRpc(rpc, ex, server);
   }
 
   /**
@@ -1548,15 +2116,63 @@ public class AsyncYBClient implements AutoCloseable {
    * a RPC, so we need to demote it and retry.
    */
   <R> void handleNotLeader(final YRpc<R> rpc, YBException ex, TabletClient server) {
+    if (rpc.getTable() == masterTable) {
+      leaderMasterHint = null;
+    }
     rpc.getTablet().demoteLeader(server);
-    handleRetryableError(rpc, ex, server);
+    rpcStats.recordRetry(RpcStats.RetryReason.NOT_LEADER);
+    retryRpc(rpc, ex, server);
   }
 
   <R> void handleRetryableError(final YRpc<R> rpc, YBException ex, TabletClient server) {
-    // TODO we don't always need to sleep, maybe another replica can serve this RPC.
+    rpcStats.recordRetry(RpcStats.RetryReason.SERVER_ERROR);
+    retryRpc(rpc, ex, server);
+  }
+
+  private <R> void retryRpc(final YRpc<R> rpc, YBException ex, TabletClient server) {
+    // We don't need to sleep if another replica can serve this RPC. Each replica gets one such
+    // immediate attempt, after that we back off as usual.
+    RemoteTablet tablet = rpc.getTablet();
+    if (rpc.isFailoverSafe() && !rpc.isRetrySameServer() && tablet != null &&
+        rpc.attempt < tablet.getNumReplicas() && !cannotRetryRequest(rpc)) {
+      TabletClient replica = tablet.getOtherReplica(server);
+      if (replica != null) {
+        if (!withdrawRetry(rpc, ex)) {
+          return;
+        }
+        LOG.debug("Retrying {} on replica {} instead of {}", rpc, replica.getUuid(),
+            server == null ? null : server.getUuid());
+        rpc.attempt++;
+        replica.sendRpc(rpc);
+        return;
+      }
+    }
     delayedSendRpcToTablet(rpc, ex, server);
   }
 
+  /**
+   * Only the RPCs sent to the tablets of user tables are subject to the retry budget. The RPCs
+   * sent to the masters, or to a given server, keep retrying until their deadline, as they do
+   * while a new leader master is elected or the servers are restarted.
+   */
+  private boolean usesRetryBudget(final YRpc<?> rpc) {
+    return retryBudget != null && rpc.getTable() != null && rpc.getTable() != masterTable;
+  }
+
+  /**
+   * Takes a retry of the passed RPC out of the retry budget, failing the RPC if the budget is
+   * exhausted.
+   * @return true if the RPC can be retried, false if it was failed
+   */
+  private <R> boolean withdrawRetry(final YRpc<R> rpc, YBException ex) {
+    if (!usesRetryBudget(rpc) || retryBudget.tryWithdraw()) {
+      return true;
+    }
+    rpcStats.recordRetryRejected();
+    rpc.errback(new NonRecoverableException("Retry budget exhausted: " + rpc, ex));
+    return false;
+  }
+
   private <R> void delayedSendRpcToTablet(final YRpc<R> rpc, YBException ex, TabletClient server) {
     // Here we simply retry the RPC later. We might be doing this along with a lot of other RPCs
     // in parallel. Asynchbase does some hacking with a "probe" RPC while putting the other ones
@@ -1578,6 +2194,9 @@ public class AsyncYBClient implements AutoCloseable {
       // Don't let it retry.
       return;
     }
+    if (!withdrawRetry(rpc, ex)) {
+      return;
+    }
     newTimeout(new RetryTimer(), sleepTime);
   }
 
@@ -1613,14 +2232,17 @@ public class AsyncYBClient implements AutoCloseable {
   };
 
   boolean acquireMasterLookupPermit() {
+    final long start = System.nanoTime();
+    boolean acquired = false;
     try {
       // With such a low timeout, the JVM may chose to spin-wait instead of
       // de-scheduling the thread (and causing context switches and whatnot).
-      return masterLookups.tryAcquire(5, MILLISECONDS);
+      acquired = masterLookups.tryAcquire(5, MILLISECONDS);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();  // Make this someone else's problem.
-      return false;
     }
+    rpcStats.recordMasterPermitWait(System.nanoTime() - start, acquired);
+    return acquired;
   }
 
   /**
@@ -1644,44 +2266,31 @@ public class AsyncYBClient implements AutoCloseable {
       tablesNotServed.add(tableId);
       return;
     }
-    // Doing a get first instead of putIfAbsent to avoid creating unnecessary CSLMs because in
-    // the most common case the table should already be present
-    ConcurrentSkipListMap<byte[], RemoteTablet> tablets = tabletsCache.get(tableId);
-    if (tablets == null) {
-      tablets = new ConcurrentSkipListMap<>(Bytes.MEMCMP);
-      ConcurrentSkipListMap<byte[], RemoteTablet> oldTablets = tabletsCache.putIfAbsent
-          (tableId, tablets);
-      if (oldTablets != null) {
-        tablets = oldTablets;
-      }
-    }
-
-    for (Master.TabletLocationsPB tabletPb : response.getTabletLocationsList()) {
-      // Early creating the tablet so that it parses out the pb
-      RemoteTablet rt = createTabletFromPb(tableId, tabletPb);
-      Slice tabletId = rt.tabletId;
-
-      // If we already know about this one, just refresh the locations
-      RemoteTablet currentTablet = tablet2client.get(tabletId);
-      if (currentTablet != null) {
-        currentTablet.refreshServers(tabletPb);
-        continue;
-      }
+    List<RemoteTablet> discovered = new ArrayList<>(response.getTabletLocationsCount());
+    try {
+      for (Master.TabletLocationsPB tabletPb : response.getTabletLocationsList()) {
+        // Early creating the tablet so that it parses out the pb
+        RemoteTablet rt = createTabletFromPb(tableId, tabletPb);
+
+        // If we already know about this one, just refresh the locations
+        RemoteTablet currentTablet = tabletLocations.get(tableId, rt.tabletId,
+            rt.getPartition().getPartitionKeyStart());
+        if (currentTablet != null) {
+          currentTablet.refreshServers(tabletPb);
+          discovered.add(currentTablet);
+          continue;
+        }
 
-      // Putting it here first doesn't make it visible because tabletsCache is always looked up
-      // first.
-      RemoteTablet oldRt = tablet2client.putIfAbsent(tabletId, rt);
-      if (oldRt != null) {
-        // someone beat us to it
-        continue;
+        LOG.info("Discovered tablet {} for table {} with partition {}",
+                 rt.getTabletIdAsString(), tableName, rt.getPartition());
+        rt.refreshServers(tabletPb);
+        discovered.add(rt);
       }
-      LOG.info("Discovered tablet {} for table {} with partition {}",
-               tabletId.toString(Charset.defaultCharset()), tableName, rt.getPartition());
-      rt.refreshServers(tabletPb);
-      // This is making this tablet available
-      // Even if two clients were racing in this method they are putting the same RemoteTablet
-      // with the same start key in the CSLM in the end
-      tablets.put(rt.getPartition().getPartitionKeyStart(), rt);
+    } finally {
+      // This is making the tablets available, replacing the ones they split from in one swap.
+      // Even if two clients were racing in this method, the last one merges its tablets with the
+      // ones of the first.
+      tabletLocations.putAll(tableId, discovered);
     }
   }
 
@@ -1698,36 +2307,11 @@ public class AsyncYBClient implements AutoCloseable {
    * @return a tablet ID as a slice or null if not found
    */
   RemoteTablet getTablet(String tableId, byte[] partitionKey) {
-    ConcurrentSkipListMap<byte[], RemoteTablet> tablets = tabletsCache.get(tableId);
-
-    if (tablets == null) {
-      return null;
-    }
-
     // We currently only have one master tablet.
     if (isMasterTable(tableId)) {
-      if (tablets.firstEntry() == null) {
-        return null;
-      }
-      return tablets.firstEntry().getValue();
-    }
-
-    Map.Entry<byte[], RemoteTablet> tabletPair = tablets.floorEntry(partitionKey);
-
-    if (tabletPair == null) {
-      return null;
+      return tabletLocations.getFirst(tableId);
     }
-
-    Partition partition = tabletPair.getValue().getPartition();
-
-    // If the partition is not the end partition, but it doesn't include the key
-    // we are looking for, then we have not yet found the correct tablet.
-    if (!partition.isEndPartition()
-        && Bytes.memcmp(partitionKey, partition.getPartitionKeyEnd()) >= 0) {
-      return null;
-    }
-
-    return tabletPair.getValue();
+    return tabletLocations.get(tableId, partitionKey == null ? EMPTY_ARRAY : partitionKey);
   }
 
   /**
@@ -1755,7 +2339,7 @@ public class AsyncYBClient implements AutoCloseable {
    * @return A live and initialized client for the specified master server.
    */
   TabletClient newMasterClient(HostAndPort masterHostPort) {
-    String ip = getIP(masterHostPort.getHost());
+    String ip = hostResolver.resolve(masterHostPort.getHost());
     if (ip == null) {
       return null;
     }
@@ -1778,18 +2362,41 @@ public class AsyncYBClient implements AutoCloseable {
   TabletClient newClient(String uuid, final String host, final int port) {
     final String hostport = host + ':' + port;
     TabletClient client;
-    SocketChannel chan;
-    synchronized (ip2client) {
-      client = ip2client.get(hostport);
-      if (client != null && client.isAlive()) {
-        return client;
+    TabletClientPipeline pipeline;
+    while (true) {
+      ConnectionPool pool = ip2client.get(hostport);
+      if (pool == null) {
+        final ConnectionPool newPool = new ConnectionPool(connectionsPerServer);
+        pool = ip2client.putIfAbsent(hostport, newPool);
+        if (pool == null) {
+          pool = newPool;
+        }
+      }
+      final int slot = pool.nextSlot();
+      final TabletClient current = pool.clients.get(slot);
+      if (current != null && current.isAlive()) {
+        return current;
       }
-      final TabletClientPipeline pipeline = new TabletClientPipeline();
+      if (pool.isDropped()) {
+        // Its last client just died, help whoever dropped it take it out of the map.
+        ip2client.remove(hostport, pool);
+        continue;
+      }
+      pipeline = new TabletClientPipeline();
       client = pipeline.init(uuid);
-      chan = channelFactory.newChannel(pipeline);
-      ip2client.put(hostport, client);  // This is guaranteed to return null.
+      // Register the client before publishing it, whoever gets it from the pool must find it in
+      // the other caches.
+      tabletLocations.addClient(client);
+      client2ip.put(client, hostport);
+      if (pool.replace(slot, current, client)) {
+        break;
+      }
+      // Someone else replaced this slot first, or the pool was dropped. Our client never
+      // connected, drop it and try again.
+      client2ip.remove(client);
+      tabletLocations.removeClient(client);
     }
-    this.client2tablets.put(client, new ArrayList<RemoteTablet>());
+    final SocketChannel chan = channelFactory.newChannel(pipeline);
     final SocketChannelConfig config = chan.getConfig();
     config.setConnectTimeoutMillis(5000);
     config.setTcpNoDelay(true);
@@ -1854,6 +2461,7 @@ public class AsyncYBClient implements AutoCloseable {
       public ArrayList<Void> call(final ArrayList<Void> arg) {
         LOG.debug("Releasing all remaining resources");
         timer.stop();
+        hostResolver.close();
         new ShutdownThread().start();
         return arg;
       }
@@ -1880,14 +2488,10 @@ public class AsyncYBClient implements AutoCloseable {
   private Deferred<ArrayList<Void>> disconnectEverything() {
     ArrayList<Deferred<Void>> deferreds =
         new ArrayList<Deferred<Void>>(2);
-    HashMap<String, TabletClient> ip2client_copy;
-    synchronized (ip2client) {
-      // Make a local copy so we can shutdown every Tablet Server clients
-      // without hold the lock while we iterate over the data structure.
-      ip2client_copy = new HashMap<String, TabletClient>(ip2client);
-    }
+    // Make a local copy, shutting the clients down removes them from the caches.
+    List<TabletClient> clients_copy = getTableClients();
 
-    for (TabletClient ts : ip2client_copy.values()) {
+    for (TabletClient ts : clients_copy) {
       deferreds.add(ts.shutdown());
     }
     final int size = deferreds.size();
@@ -1897,18 +2501,8 @@ public class AsyncYBClient implements AutoCloseable {
             // Normally, now that we've shutdown() every client, all our caches should
             // be empty since each shutdown() generates a DISCONNECTED event, which
             // causes TabletClientPipeline to call removeClientFromCache().
-            HashMap<String, TabletClient> logme = null;
-            synchronized (ip2client) {
-              if (!ip2client.isEmpty()) {
-                logme = new HashMap<String, TabletClient>(ip2client);
-              }
-            }
-            if (logme != null) {
-              // Putting this logging statement inside the synchronized block
-              // can lead to a deadlock, since HashMap.toString() is going to
-              // call TabletClient.toString() on each entry, and this locks the
-              // client briefly.  Other parts of the code lock clients first and
-              // the ip2client HashMap second, so this can easily deadlock.
+            List<TabletClient> logme = getTableClients();
+            if (!logme.isEmpty()) {
               LOG.error("Some clients are left in the client cache and haven't"
                   + " been cleaned up: " + logme);
             }
@@ -1921,113 +2515,26 @@ public class AsyncYBClient implements AutoCloseable {
         });
   }
 
-  /**
-   * Blocking call.
-   * Performs a slow search of the IP used by the given client.
-   * <p>
-   * This is needed when we're trying to find the IP of the client before its
-   * channel has successfully connected, because Netty's API offers no way of
-   * retrieving the IP of the remote peer until we're connected to it.
-   * @param client The client we want the IP of.
-   * @return The IP of the client, or {@code null} if we couldn't find it.
-   */
-  private InetSocketAddress slowSearchClientIP(final TabletClient client) {
-    String hostport = null;
-    synchronized (ip2client) {
-      for (final Map.Entry<String, TabletClient> e : ip2client.entrySet()) {
-        if (e.getValue() == client) {
-          hostport = e.getKey();
-          break;
-        }
-      }
-    }
-
-    if (hostport == null) {
-      HashMap<String, TabletClient> copy;
-      synchronized (ip2client) {
-        copy = new HashMap<String, TabletClient>(ip2client);
-      }
-      LOG.error("WTF?  Should never happen!  Couldn't find " + client
-          + " in " + copy);
-      return null;
-    }
-    final int colon = hostport.indexOf(':', 1);
-    if (colon < 1) {
-      LOG.error("WTF?  Should never happen!  No `:' found in " + hostport);
-      return null;
-    }
-    final String host = getIP(hostport.substring(0, colon));
-    if (host == null) {
-      // getIP will print the reason why, there's nothing else we can do.
-      return null;
-    }
-
-    int port;
-    try {
-      port = parsePortNumber(hostport.substring(colon + 1,
-          hostport.length()));
-    } catch (NumberFormatException e) {
-      LOG.error("WTF?  Should never happen!  Bad port in " + hostport, e);
-      return null;
-    }
-    return new InetSocketAddress(host, port);
-  }
-
   /**
    * Removes all the cache entries referred to the given client.
    * @param client The client for which we must invalidate everything.
-   * @param remote The address of the remote peer, if known, or null.
    */
-  private void removeClientFromCache(final TabletClient client,
-                                     final SocketAddress remote) {
-
-    if (remote == null) {
-      return;  // Can't continue without knowing the remote address.
-    }
-
-    String hostport;
-    if (remote instanceof InetSocketAddress) {
-      final InetSocketAddress sock = (InetSocketAddress) remote;
-      final InetAddress addr = sock.getAddress();
-      if (addr == null) {
-        LOG.error("WTF?  Unresolved IP for " + remote
-            + ".  This shouldn't happen.");
-        return;
-      } else {
-        hostport = addr.getHostAddress() + ':' + sock.getPort();
-      }
-    } else {
-      LOG.error("WTF?  Found a non-InetSocketAddress remote: " + remote
-          + ".  This shouldn't happen.");
-      return;
+  private void removeClientFromCache(final TabletClient client) {
+    final String hostport = client2ip.remove(client);
+    if (hostport == null) {
+      return;  // We removed it already.
     }
-
-    TabletClient old;
-    synchronized (ip2client) {
-      old = ip2client.remove(hostport);
+    final ConnectionPool pool = ip2client.get(hostport);
+    // Only this connection goes away, the other ones in the pool may still be healthy. If the slot
+    // was already given to a new client, leave that one alone.
+    if (pool != null && pool.remove(client)) {
+      ip2client.remove(hostport, pool);
     }
     LOG.debug("Removed from IP cache: {" + hostport + "} -> {" + client + "}");
-    if (old == null) {
-      // Currently we're seeing this message when masters are disconnected and the hostport we got
-      // above is different than the one the user passes (that we use to populate ip2client). At
-      // worst this doubles the entries for masters, which has an insignificant impact.
-      // TODO When fixed, make this a WARN again.
-      LOG.trace("When expiring " + client + " from the client cache (host:port="
-          + hostport + "), it was found that there was no entry"
-          + " corresponding to " + remote + ".  This shouldn't happen.");
-    }
 
-    ArrayList<RemoteTablet> tablets = client2tablets.remove(client);
+    RemoteTablet[] tablets = tabletLocations.removeClient(client);
     if (tablets != null) {
-      // Make a copy so we don't need to synchronize on it while iterating.
-      RemoteTablet[] tablets_copy;
-      synchronized (tablets) {
-        tablets_copy = tablets.toArray(new RemoteTablet[tablets.size()]);
-        tablets = null;
-        // If any other thread still has a reference to `tablets', their
-        // updates will be lost (and we don't care).
-      }
-      for (final RemoteTablet remoteTablet : tablets_copy) {
+      for (final RemoteTablet remoteTablet : tablets) {
         remoteTablet.removeTabletServer(client);
       }
     }
@@ -2146,18 +2653,11 @@ public class AsyncYBClient implements AutoCloseable {
       disconnected = true;  // So we don't clean up the same client twice.
       try {
         final TabletClient client = super.get(TabletClient.class);
-        SocketAddress remote = super.getChannel().getRemoteAddress();
-        // At this point Netty gives us no easy way to access the
-        // SocketAddress of the peer we tried to connect to. This
-        // kinda sucks but I couldn't find an easier way.
-        if (remote == null) {
-          remote = slowSearchClientIP(client);
-        }
 
         // Prevent the client from buffering requests while we invalidate
         // everything we have about it.
         synchronized (client) {
-          removeClientFromCache(client, remote);
+          removeClientFromCache(client);
         }
       } catch (Exception e) {
         log.error("Uncaught exception when handling a disconnection of " + getChannel(), e);
@@ -2166,63 +2666,36 @@ public class AsyncYBClient implements AutoCloseable {
 
   }
 
-  /**
-   * Gets a hostname or an IP address and returns the textual representation
-   * of the IP address.
-   * <p>
-   * <strong>This method can block</strong> as there is no API for
-   * asynchronous DNS resolution in the JDK.
-   * @param host The hostname to resolve.
-   * @return The IP address associated with the given hostname,
-   * or {@code null} if the address couldn't be resolved.
-   */
-  private static String getIP(final String host) {
-    final long start = System.nanoTime();
-    try {
-      final String ip = InetAddress.getByName(host).getHostAddress();
-      final long latency = System.nanoTime() - start;
-      if (latency > 500000/*ns*/ && LOG.isDebugEnabled()) {
-        LOG.debug("Resolved IP of `" + host + "' to "
-            + ip + " in " + latency + "ns");
-      } else if (latency >= 3000000/*ns*/) {
-        LOG.warn("Slow DNS lookup!  Resolved IP of `" + host + "' to "
-            + ip + " in " + latency + "ns");
-      }
-      return ip;
-    } catch (UnknownHostException e) {
-      LOG.error("Failed to resolve the IP of `" + host + "' in "
-          + (System.nanoTime() - start) + "ns");
-      return null;
-    }
-  }
-
-  /**
-   * Parses a TCP port number from a string.
-   * @param portnum The string to parse.
-   * @return A strictly positive, validated port number.
-   * @throws NumberFormatException if the string couldn't be parsed as an
-   * integer or if the value was outside of the range allowed for TCP ports.
-   */
-  private static int parsePortNumber(final String portnum)
-      throws NumberFormatException {
-    final int port = Integer.parseInt(portnum);
-    if (port <= 0 || port > 65535) {
-      throw new NumberFormatException(port == 0 ? "port is zero" :
-          (port < 0 ? "port is negative: "
-              : "port is too large: ") + port);
-    }
-    return port;
-  }
-
-  void newTimeout(final TimerTask task, final long timeout_ms) {
+  boolean newTimeout(final TimerTask task, final long timeout_ms) {
     try {
       timer.newTimeout(task, timeout_ms, MILLISECONDS);
+      return true;
     } catch (IllegalStateException e) {
       // This can happen if the timer fires just before shutdown()
       // is called from another thread, and due to how threads get
       // scheduled we tried to call newTimeout() after timer.stop().
       LOG.warn("Failed to schedule timer."
           + "  Ignore this if we're shutting down.", e);
+      return false;
+    }
+  }
+
+  /**
+   * A replica of a tablet whose address was resolved, ready to be added to a {@link RemoteTablet}.
+   */
+  private static final class ResolvedReplica {
+    final String uuid;
+    final String ip;
+    final int port;
+    final boolean isLeader;
+    final int distance;
+
+    ResolvedReplica(String uuid, String ip, int port, boolean isLeader, int distance) {
+      this.uuid = uuid;
+      this.ip = ip;
+      this.port = port;
+      this.isLeader = isLeader;
+      this.distance = distance;
     }
   }
 
@@ -2259,6 +2732,9 @@ public class AsyncYBClient implements AutoCloseable {
     private final String tableId;
     private final Slice tabletId;
     private final ArrayList<TabletClient> tabletServers = new ArrayList<TabletClient>();
+    // Distance of the replicas from the client, by tablet server uuid, see ReplicaSelectionPolicy.
+    @GuardedBy("tabletServers")
+    private final Map<String, Integer> replicaDistances = new HashMap<String, Integer>();
     private final Partition partition;
     private int leaderIndex = NO_LEADER_INDEX;
 
@@ -2269,73 +2745,76 @@ public class AsyncYBClient implements AutoCloseable {
     }
 
     void refreshServers(Master.TabletLocationsPB tabletLocations) throws NonRecoverableException {
+      // Resolve the replicas before taking the lock: a slow DNS server must not block the RPCs
+      // looking up the servers of this tablet in the meantime.
+      List<ResolvedReplica> replicas = new ArrayList<>(tabletLocations.getReplicasCount());
+      List<UnknownHostException> lookupExceptions =
+          new ArrayList<>(tabletLocations.getReplicasCount());
+      for (Master.TabletLocationsPB.ReplicaPB replica : tabletLocations.getReplicasList()) {
+        Master.TSInfoPB tsInfo = replica.getTsInfo();
+        if (tsInfo.getBroadcastAddressesCount() == 0 &&
+            tsInfo.getPrivateRpcAddressesCount() == 0) {
+          LOG.warn("Tablet server for tablet " + getTabletIdAsString() + " doesn't have any " +
+              "address");
+          continue;
+        }
+        // The policy picks which of the addresses advertised by the TS to use, based on where
+        // the client is.
+        Common.HostPortPB address = replicaSelectionPolicy.selectAddress(tsInfo);
+        String ip = hostResolver.resolve(address.getHost());
+        if (ip == null) {
+          lookupExceptions.add(new UnknownHostException(
+              "Failed to resolve the IP of `" + address.getHost() + "'"));
+          continue;
+        }
+        replicas.add(new ResolvedReplica(tsInfo.getPermanentUuid().toStringUtf8(), ip,
+            address.getPort(), replica.getRole().equals(Metadata.RaftPeerPB.Role.LEADER),
+            replicaSelectionPolicy.distance(tsInfo.getCloudInfo())));
+      }
 
-      synchronized (tabletServers) { // TODO not a fat lock with IP resolving in it
+      synchronized (tabletServers) {
+        List<TabletClient> oldServers = new ArrayList<>(tabletServers);
         tabletServers.clear();
+        replicaDistances.clear();
         leaderIndex = NO_LEADER_INDEX;
-        List<UnknownHostException> lookupExceptions =
-            new ArrayList<>(tabletLocations.getReplicasCount());
-        for (Master.TabletLocationsPB.ReplicaPB replica : tabletLocations.getReplicasList()) {
-
-          List<Common.HostPortPB> addresses = replica.getTsInfo().getBroadcastAddressesList();
-          if (addresses.isEmpty()) {
-            addresses = replica.getTsInfo().getPrivateRpcAddressesList();
-          }
-          if (addresses.isEmpty()) {
-            LOG.warn("Tablet server for tablet " + getTabletIdAsString() + " doesn't have any " +
-                "address");
-            continue;
-          }
-          String uuid = replica.getTsInfo().getPermanentUuid().toStringUtf8();
-          // from meta_cache.cc
-          // TODO: if the TS advertises multiple host/ports, pick the right one
-          // based on some kind of policy. For now just use the first always.
-          try {
-            addTabletClient(uuid, addresses.get(0).getHost(), addresses.get(0).getPort(),
-                replica.getRole().equals(Metadata.RaftPeerPB.Role.LEADER));
-          } catch (UnknownHostException ex) {
-            lookupExceptions.add(ex);
+        for (ResolvedReplica replica : replicas) {
+          replicaDistances.put(replica.uuid, replica.distance);
+          addTabletClient(replica.uuid, replica.ip, replica.port, replica.isLeader);
+        }
+        // The servers that no longer have a replica of this tablet don't serve it anymore.
+        for (TabletClient client : oldServers) {
+          if (!tabletServers.contains(client)) {
+            AsyncYBClient.this.tabletLocations.removeReplica(client, this);
           }
         }
         leaderIndex = 0;
         if (leaderIndex == NO_LEADER_INDEX) {
           LOG.warn("No leader provided for tablet " + getTabletIdAsString());
         }
+      }
 
-        // If we found a tablet that doesn't contain a single location that we can resolve, there's
-        // no point in retrying.
-        if (!lookupExceptions.isEmpty() &&
-            lookupExceptions.size() == tabletLocations.getReplicasCount()) {
-          throw new NonRecoverableException("Couldn't find any valid locations, exceptions: " +
-              lookupExceptions);
-        }
+      // If we found a tablet that doesn't contain a single location that we can resolve, there's
+      // no point in retrying.
+      if (!lookupExceptions.isEmpty() &&
+          lookupExceptions.size() == tabletLocations.getReplicasCount()) {
+        throw new NonRecoverableException("Couldn't find any valid locations, exceptions: " +
+            lookupExceptions);
       }
     }
 
-    // Must be called with tabletServers synchronized
-    void addTabletClient(String uuid, String host, int port, boolean isLeader)
-        throws UnknownHostException {
-      String ip = getIP(host);
-      if (ip == null) {
-        throw new UnknownHostException("Failed to resolve the IP of `" + host + "'");
-      }
+    // Must be called with tabletServers synchronized, ip is the already resolved address of the
+    // tablet server.
+    void addTabletClient(String uuid, String ip, int port, boolean isLeader) {
       TabletClient client = newClient(uuid, ip, port);
 
-      final ArrayList<RemoteTablet> tablets = client2tablets.get(client);
-
-      if (tablets == null) {
+      if (!tabletLocations.addReplica(client, this)) {
         // We raced with removeClientFromCache and lost. The client we got was just disconnected.
         // Reconnect.
-        addTabletClient(uuid, host, port, isLeader);
+        addTabletClient(uuid, ip, port, isLeader);
+      } else if (isLeader) {
+        tabletServers.add(0, client);
       } else {
-        synchronized (tablets) {
-          if (isLeader) {
-            tabletServers.add(0, client);
-          } else {
-            tabletServers.add(client);
-          }
-          tablets.add(this);
-        }
+        tabletServers.add(client);
       }
     }
 
@@ -2370,6 +2849,70 @@ public class AsyncYBClient implements AutoCloseable {
       }
     }
 
+    /**
+     * @return a copy of the list of tablet servers of this tablet, the leader first
+     */
+    List<TabletClient> getTabletServers() {
+      synchronized (tabletServers) {
+        return new ArrayList<TabletClient>(tabletServers);
+      }
+    }
+
+    int getNumReplicas() {
+      synchronized (tabletServers) {
+        return tabletServers.size();
+      }
+    }
+
+    /**
+     * Picks one of this tablet's replicas at random, other than the passed one.
+     * @param ts A TabletClient that just failed a RPC for this tablet, may be null.
+     * @return A live TabletClient, or null if there is none besides ts.
+     */
+    TabletClient getOtherReplica(TabletClient ts) {
+      synchronized (tabletServers) {
+        List<TabletClient> candidates = new ArrayList<>(tabletServers.size());
+        for (TabletClient client : tabletServers) {
+          if (client != ts && client.isAlive()) {
+            candidates.add(client);
+          }
+        }
+        if (candidates.isEmpty()) {
+          return null;
+        }
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+      }
+    }
+
+    /**
+     * Picks one of the live replicas closest to the client, at random among the closest ones.
+     * @return A live TabletClient, or null if there is none.
+     */
+    TabletClient getClosestReplica() {
+      synchronized (tabletServers) {
+        List<TabletClient> closest = new ArrayList<>(tabletServers.size());
+        int closestDistance = Integer.MAX_VALUE;
+        for (TabletClient client : tabletServers) {
+          if (!client.isAlive()) {
+            continue;
+          }
+          Integer distance = replicaDistances.get(client.getUuid());
+          int d = distance == null ? Integer.MAX_VALUE - 1 : distance;
+          if (d < closestDistance) {
+            closest.clear();
+            closestDistance = d;
+          }
+          if (d == closestDistance) {
+            closest.add(client);
+          }
+        }
+        if (closest.isEmpty()) {
+          return null;
+        }
+        return closest.get(ThreadLocalRandom.current().nextInt(closest.size()));
+      }
+    }
+
     /**
      * If the passed TabletClient is the current leader, then the next one in the list will be
      * "promoted" unless we're at the end of the list, in which case we set the leaderIndex to
@@ -2463,6 +3006,13 @@ public class AsyncYBClient implements AutoCloseable {
     private static final int DEFAULT_MASTER_PORT = 7100;
     private static final int DEFAULT_BOSS_COUNT = 1;
     private static final int DEFAULT_WORKER_COUNT = 2 * Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_TABLET_LOCATIONS_PREFETCH_COUNT = 10;
+    private static final int DEFAULT_CONNECTIONS_PER_SERVER = 1;
+    private static final double DEFAULT_RETRY_RATIO = 0.5;
+    private static final int DEFAULT_MIN_RETRIES_PER_SEC = 100;
+    private static final long DEFAULT_DNS_CACHE_TTL_MS = 60000;
+    private static final long DEFAULT_TABLET_LOCATIONS_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_TABLET_LOCATIONS_CACHE_TTL_MS = 60 * 60 * 1000;
 
     private final List<HostAndPort> masterAddresses;
     private long defaultAdminOperationTimeoutMs = DEFAULT_OPERATION_TIMEOUT_MS;
@@ -2475,6 +3025,16 @@ public class AsyncYBClient implements AutoCloseable {
     private Executor workerExecutor;
     private int bossCount = DEFAULT_BOSS_COUNT;
     private int workerCount = DEFAULT_WORKER_COUNT;
+    private int tabletLocationsPrefetchCount = DEFAULT_TABLET_LOCATIONS_PREFETCH_COUNT;
+    private int connectionsPerServer = DEFAULT_CONNECTIONS_PER_SERVER;
+    private RetryPolicy retryPolicy = new ExponentialBackoffRetryPolicy();
+    private ReplicaSelectionPolicy replicaSelectionPolicy =
+        new PlacementAwareReplicaSelectionPolicy((Common.CloudInfoPB) null);
+    private double retryRatio = DEFAULT_RETRY_RATIO;
+    private int minRetriesPerSec = DEFAULT_MIN_RETRIES_PER_SEC;
+    private long dnsCacheTtlMs = DEFAULT_DNS_CACHE_TTL_MS;
+    private long tabletLocationsCacheMaxBytes = DEFAULT_TABLET_LOCATIONS_CACHE_MAX_BYTES;
+    private long tabletLocationsCacheTtlMs = DEFAULT_TABLET_LOCATIONS_CACHE_TTL_MS;
 
     /**
      * Creates a new builder for a client that will connect to the specified masters.
@@ -2600,6 +3160,116 @@ public class AsyncYBClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Set the maximum number of tablets to fetch from the master when looking up the location of
+     * a tablet, starting with the tablet that was missing from the cache.
+     * Optional.
+     * If not provided, 10 is used.
+     */
+    public AsyncYBClientBuilder tabletLocationsPrefetchCount(int prefetchCount) {
+      Preconditions.checkArgument(prefetchCount > 0,
+                                  "prefetchCount should be greater than 0");
+      this.tabletLocationsPrefetchCount = prefetchCount;
+      return this;
+    }
+
+    /**
+     * Set the number of connections to open to each tablet server and master. The tablets of a
+     * server are spread over its connections in round-robin order, which lets the responses for
+     * different tablets be read by different worker threads.
+     * Optional.
+     * If not provided, 1 is used.
+     */
+    public AsyncYBClientBuilder connectionsPerServer(int connectionsPerServer) {
+      Preconditions.checkArgument(connectionsPerServer > 0,
+                                  "connectionsPerServer should be greater than 0");
+      this.connectionsPerServer = connectionsPerServer;
+      return this;
+    }
+
+    /**
+     * Set the policy deciding how long to wait before retrying a failed RPC.
+     * Optional.
+     * If not provided, an {@link ExponentialBackoffRetryPolicy} with its default settings is used.
+     */
+    public AsyncYBClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+      Preconditions.checkNotNull(retryPolicy, "retryPolicy should not be null");
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * Set the cloud, region and zone the client runs in, so that it reaches the tablet servers of
+     * its region on their private addresses and serves follower reads from its closest replicas.
+     * Optional.
+     * If not provided, tablet servers are reached on their broadcast addresses when they have
+     * some, and no replica is considered closer than the others.
+     * @see PlacementAwareReplicaSelectionPolicy
+     */
+    public AsyncYBClientBuilder placement(String cloud, String region, String zone) {
+      this.replicaSelectionPolicy = new PlacementAwareReplicaSelectionPolicy(cloud, region, zone);
+      return this;
+    }
+
+    /**
+     * Set the policy choosing the addresses and replicas the client uses, overriding
+     * {@link #placement}.
+     * Optional.
+     */
+    public AsyncYBClientBuilder replicaSelectionPolicy(ReplicaSelectionPolicy policy) {
+      Preconditions.checkNotNull(policy, "policy should not be null");
+      this.replicaSelectionPolicy = policy;
+      return this;
+    }
+
+    /**
+     * Cap the retries of RPCs sent to the tablets of user tables, the retries of RPCs sent to the
+     * masters aren't capped. Every RPC allows {@code retryRatio} retries, and
+     * {@code minRetriesPerSec} retries per second are allowed regardless of the number of RPCs.
+     * RPCs that can't be retried within the budget fail right away. A ratio of 0 disables the
+     * budget.
+     * Optional.
+     * If not provided, a ratio of 0.5 and 100 retries per second are used.
+     */
+    public AsyncYBClientBuilder retryBudget(double retryRatio, int minRetriesPerSec) {
+      Preconditions.checkArgument(retryRatio >= 0, "retryRatio should not be negative");
+      Preconditions.checkArgument(minRetriesPerSec >= 0,
+                                  "minRetriesPerSec should not be negative");
+      this.retryRatio = retryRatio;
+      this.minRetriesPerSec = minRetriesPerSec;
+      return this;
+    }
+
+    /**
+     * Set how long the resolved addresses of the masters and tablet servers are used before
+     * resolving their hosts again. Expired addresses keep being used while the hosts are resolved
+     * again in the background. A TTL of 0 disables the cache and resolves the host every time a
+     * server is looked up.
+     * Optional.
+     * If not provided, defaults to 60s.
+     */
+    public AsyncYBClientBuilder dnsCacheTtlMs(long ttlMs) {
+      Preconditions.checkArgument(ttlMs >= 0, "ttlMs should not be negative");
+      this.dnsCacheTtlMs = ttlMs;
+      return this;
+    }
+
+    /**
+     * Bound the cache of tablet locations. The tablets of a table not used for {@code ttlMs} are
+     * dropped, and the least recently used tables are dropped when the estimated size of the
+     * cached locations goes over {@code maxBytes}. A TTL of 0 keeps the tablets of a table until
+     * they are dropped for size.
+     * Optional.
+     * If not provided, defaults to 64MB and 1 hour.
+     */
+    public AsyncYBClientBuilder tabletLocationsCache(long maxBytes, long ttlMs) {
+      Preconditions.checkArgument(maxBytes > 0, "maxBytes should be positive");
+      Preconditions.checkArgument(ttlMs >= 0, "ttlMs should not be negative");
+      this.tabletLocationsCacheMaxBytes = maxBytes;
+      this.tabletLocationsCacheTtlMs = ttlMs;
+      return this;
+    }
+
     /**
      * Creates the channel factory for Netty. The user can specify the executors, but
      * if they don't, we'll use a simple thread pool.
@@ -71,7 +71,10 @@ final class CallResponse {
     this.totalResponseSize = buf.readInt();
     if (this.totalResponseSize > 0) {
       YRpc.checkArrayLength(buf, this.totalResponseSize);
-      TabletClient.ensureReadable(buf, this.totalResponseSize);
+      if (buf.readableBytes() < this.totalResponseSize) {
+        throw new IndexOutOfBoundsException("Response of " + this.totalResponseSize +
+            " bytes truncated to " + buf.readableBytes() + " bytes");
+      }
 
       final int headerSize = Bytes.readVarInt32(buf);
       final Slice headerSlice = nextBytes(buf, headerSize);
@@ -175,6 +178,7 @@ final class CallResponse {
     if (buf.hasArray()) {  // Zero copy.
       payload = buf.array();
       offset = buf.arrayOffset() + buf.readerIndex();
+      buf.skipBytes(length);
     } else {  // We have to copy the entire payload out of the buffer :(
       payload = new byte[length];
       buf.readBytes(payload);
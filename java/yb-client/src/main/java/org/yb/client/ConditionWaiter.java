@@ -0,0 +1,182 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.stumbleupon.async.Callback;
+import com.stumbleupon.async.Deferred;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yb.annotations.InterfaceAudience;
+
+/**
+ * Checks an {@link AsyncYBClient.AsyncCondition} until it holds or the wait times out, without
+ * holding a thread in between: each check is an asynchronous call, and the next one is scheduled
+ * on the client's timer, backing off as given by a {@link RetryPolicy}. The wait fails once its
+ * timeout expires even if a check is still in progress.
+ */
+@InterfaceAudience.Private
+final class ConditionWaiter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConditionWaiter.class);
+
+  // Maximum number of failed checks before giving up on the condition.
+  static final int MAX_ERRORS_TO_IGNORE = 2500;
+
+  // Log every so many failed checks.
+  private static final int LOG_ERRORS_EVERY_NUM_ITERS = 100;
+
+  // Log every so many checks.
+  private static final int LOG_EVERY_NUM_ITERS = 200;
+
+  // Waits longer than this, e.g. Long.MAX_VALUE to wait forever, would overflow the timer.
+  private static final long MAX_TIMED_WAIT_MS = TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE) / 2;
+
+  private final AsyncYBClient client;
+  private final AsyncYBClient.AsyncCondition condition;
+  private final long timeoutMs;
+  private final RetryPolicy backoff;
+  private final long startMs = System.currentTimeMillis();
+  private final Deferred<Boolean> result = new Deferred<Boolean>();
+  // Set once the result is known, by the last check or by the timeout.
+  private final AtomicBoolean done = new AtomicBoolean(false);
+
+  // Only touched by the check in progress, there is at most one at a time.
+  private int numIters = 0;
+  private int numErrors = 0;
+  private long lastSleepTimeMs = 0;
+  // Set by the checks, also read by the timeout.
+  private volatile Exception lastException;
+
+  private ConditionWaiter(AsyncYBClient client, AsyncYBClient.AsyncCondition condition,
+                          long timeoutMs, RetryPolicy backoff) {
+    this.client = client;
+    this.condition = condition;
+    this.timeoutMs = timeoutMs;
+    this.backoff = backoff;
+  }
+
+  /**
+   * Starts checking the condition.
+   * @return a Deferred called back with true once the condition holds, or with false if it
+   *         doesn't hold within timeoutMs or the checks failed too many times
+   */
+  static Deferred<Boolean> waitFor(AsyncYBClient client, AsyncYBClient.AsyncCondition condition,
+                                   long timeoutMs, RetryPolicy backoff) {
+    ConditionWaiter waiter = new ConditionWaiter(client, condition, timeoutMs, backoff);
+    if (timeoutMs <= MAX_TIMED_WAIT_MS) {
+      waiter.armTimeout();
+    }
+    waiter.check();
+    return waiter.result;
+  }
+
+  private void armTimeout() {
+    // A check whose Deferred never completes must not hold the wait past its timeout.
+    client.newTimeout(new TimerTask() {
+      public void run(final Timeout timeout) {
+        if (!done.get()) {
+          LOG.error("Timed out waiting for operation. Final exception was {}.",
+                    lastException != null ? lastException.toString() : "none");
+          fail();
+        }
+      }
+    }, timeoutMs);
+  }
+
+  private void check() {
+    Deferred<Boolean> d;
+    try {
+      d = condition.get();
+    } catch (Exception e) {
+      d = Deferred.fromError(e);
+    }
+    d.addCallbacks(new Callback<Void, Boolean>() {
+      public Void call(final Boolean holds) {
+        if (Boolean.TRUE.equals(holds)) {
+          complete(true);
+        } else {
+          checkAgain();
+        }
+        return null;
+      }
+      public String toString() {
+        return "condition checked";
+      }
+    }, new Callback<Void, Exception>() {
+      public Void call(final Exception e) {
+        // We will get exceptions if we cannot connect to the other end. Save them for the final
+        // debug if we never succeed.
+        lastException = e;
+        numErrors++;
+        if (numErrors % LOG_ERRORS_EVERY_NUM_ITERS == 0) {
+          LOG.warn("Hit {} errors so far. Latest is : {}.", numErrors, e.toString());
+        }
+        if (numErrors >= MAX_ERRORS_TO_IGNORE) {
+          LOG.error("Hit too many errors, final exception is {}.", e.toString());
+          fail();
+        } else {
+          checkAgain();
+        }
+        return null;
+      }
+      public String toString() {
+        return "condition check failed";
+      }
+    });
+  }
+
+  private void checkAgain() {
+    if (done.get()) {
+      return;
+    }
+    numIters++;
+    if (numIters % LOG_EVERY_NUM_ITERS == 0) {
+      LOG.info("Tried operation {} times so far.", numIters);
+    }
+    long elapsedMs = System.currentTimeMillis() - startMs;
+    if (elapsedMs >= timeoutMs) {
+      LOG.error("Timed out waiting for operation. Final exception was {}.",
+                lastException != null ? lastException.toString() : "none");
+      fail();
+      return;
+    }
+    lastSleepTimeMs = Math.min(backoff.getSleepTimeMs(numIters, lastSleepTimeMs),
+                               timeoutMs - elapsedMs);
+    boolean scheduled = client.newTimeout(new TimerTask() {
+      public void run(final Timeout timeout) {
+        check();
+      }
+    }, lastSleepTimeMs);
+    if (!scheduled) {
+      // The client is shutting down.
+      fail();
+    }
+  }
+
+  private void fail() {
+    LOG.error("Returning failure after {} iterations, num errors = {}.", numIters, numErrors);
+    complete(false);
+  }
+
+  private void complete(boolean holds) {
+    if (done.compareAndSet(false, true)) {
+      result.callback(holds);
+    }
+  }
+}
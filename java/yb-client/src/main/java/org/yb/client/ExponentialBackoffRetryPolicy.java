@@ -0,0 +1,65 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.common.base.Preconditions;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Capped exponential backoff with decorrelated jitter: each sleep is picked uniformly between the
+ * base sleep time and three times the previous sleep, and never exceeds the cap. The randomness
+ * keeps clients that failed at the same moment, e.g. during a leader election, from retrying in
+ * lockstep.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+  public static final long DEFAULT_BASE_SLEEP_TIME_MS = 20;
+  public static final long DEFAULT_MAX_SLEEP_TIME_MS = 2000;
+
+  private final long baseSleepTimeMs;
+  private final long maxSleepTimeMs;
+
+  public ExponentialBackoffRetryPolicy() {
+    this(DEFAULT_BASE_SLEEP_TIME_MS, DEFAULT_MAX_SLEEP_TIME_MS);
+  }
+
+  /**
+   * @param baseSleepTimeMs the shortest sleep, used for the first retry
+   * @param maxSleepTimeMs the longest sleep
+   */
+  public ExponentialBackoffRetryPolicy(long baseSleepTimeMs, long maxSleepTimeMs) {
+    Preconditions.checkArgument(baseSleepTimeMs > 0, "baseSleepTimeMs should be greater than 0");
+    Preconditions.checkArgument(maxSleepTimeMs >= baseSleepTimeMs,
+                                "maxSleepTimeMs should not be less than baseSleepTimeMs");
+    this.baseSleepTimeMs = baseSleepTimeMs;
+    this.maxSleepTimeMs = maxSleepTimeMs;
+  }
+
+  @Override
+  public long getSleepTimeMs(int attempt, long lastSleepTimeMs) {
+    long upper = Math.max(lastSleepTimeMs, baseSleepTimeMs) * 3;
+    long sleepTime = baseSleepTimeMs + ThreadLocalRandom.current().nextLong(upper - baseSleepTimeMs);
+    return Math.min(maxSleepTimeMs, sleepTime);
+  }
+
+  @Override
+  public String toString() {
+    return "ExponentialBackoffRetryPolicy(base=" + baseSleepTimeMs + "ms, max=" +
+        maxSleepTimeMs + "ms)";
+  }
+}
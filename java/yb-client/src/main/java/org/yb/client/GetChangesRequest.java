@@ -22,20 +22,33 @@ import org.yb.util.Pair;
 import org.yb.cdc.CdcService.GetChangesRequestPB;
 import org.yb.cdc.CdcService.GetChangesResponsePB;
 
-public class GetChangesRequest extends YRpc<GetChangesResponse> {
+public class GetChangesRequest extends YRpc<GetChangesResponse> implements YRpc.HasKey {
   private final String streamId;
   private final String tabletId;
   private final long term;
   private final long index;
+  // Start key of the tablet's partition, used to route the request through the tablet cache.
+  private final byte[] partitionKey;
 
   public GetChangesRequest(YBTable table, String streamId, String tabletId, long term, long index) {
+    this(table, streamId, tabletId, null, term, index);
+  }
+
+  public GetChangesRequest(YBTable table, String streamId, String tabletId, byte[] partitionKey,
+                           long term, long index) {
     super(table);
     this.streamId = streamId;
     this.tabletId = tabletId;
+    this.partitionKey = partitionKey;
     this.term = term;
     this.index = index;
   }
 
+  @Override
+  public byte[] partitionKey() {
+    return partitionKey;
+  }
+
   @Override
   ChannelBuffer serialize(Message header) {
     assert header.isInitialized();
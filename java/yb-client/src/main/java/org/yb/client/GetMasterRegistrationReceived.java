@@ -89,6 +89,13 @@ final class GetMasterRegistrationReceived {
     this.numMasters = masterAddrs.size();
   }
 
+  /**
+   * @return true once 'responseD' has been called back, with the leader or with an error.
+   */
+  boolean isDone() {
+    return responseDCalled.get();
+  }
+
   /**
    * Creates a callback for a GetMasterRegistrationRequest that was sent to 'hostAndPort'.
    * @see GetMasterRegistrationCB
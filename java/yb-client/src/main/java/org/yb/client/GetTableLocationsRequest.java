@@ -48,6 +48,8 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
   private final byte[] startPartitionKey;
   private final byte[] endKey;
   private final String tableId;
+  // Maximum number of tablets the master should return, 0 to use the master's default.
+  private int maxReturnedLocations = 0;
 
   GetTableLocationsRequest(YBTable table, byte[] startPartitionKey,
                            byte[] endPartitionKey, String tableId) {
@@ -62,6 +64,10 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     this.tableId = tableId;
   }
 
+  void setMaxReturnedLocations(int maxReturnedLocations) {
+    this.maxReturnedLocations = maxReturnedLocations;
+  }
+
   @Override
   String serviceName() { return MASTER_SERVICE_NAME; }
 
@@ -94,6 +100,9 @@ class GetTableLocationsRequest extends YRpc<Master.GetTableLocationsResponsePB>
     if (endKey != null) {
       builder.setPartitionKeyEnd(UnsafeByteOperations.unsafeWrap(endKey));
     }
+    if (maxReturnedLocations > 0) {
+      builder.setMaxReturnedLocations(maxReturnedLocations);
+    }
     return toChannelBuffer(header, builder.build());
   }
 }
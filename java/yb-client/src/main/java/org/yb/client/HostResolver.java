@@ -0,0 +1,144 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yb.annotations.InterfaceAudience;
+
+/**
+ * Resolves host names to IP addresses, caching the results.
+ * <p>
+ * A host is only resolved on the caller's thread the first time it's seen. Once its address is
+ * older than the TTL, the next lookup still returns it and resolves the host again in the
+ * background, so that a slow DNS server only delays the first connection to a host. Hosts that
+ * aren't looked up for a while are dropped from the cache.
+ */
+@InterfaceAudience.Private
+final class HostResolver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HostResolver.class);
+
+  private static final int MAX_CACHED_HOSTS = 10000;
+
+  // Number of threads refreshing addresses in the background.
+  private static final int REFRESH_THREADS = 4;
+
+  // Hosts not looked up for this many TTLs are dropped.
+  private static final int IDLE_TTLS = 10;
+
+  private final long ttlMs;
+
+  // Null when the cache is disabled.
+  private final LoadingCache<String, String> cache;
+  private final ThreadPoolExecutor refreshExecutor;
+
+  /**
+   * @param ttlMs how long a resolved address is used before resolving the host again, 0 to
+   *              resolve the host on every lookup
+   */
+  HostResolver(long ttlMs) {
+    this.ttlMs = ttlMs;
+    if (ttlMs <= 0) {
+      cache = null;
+      refreshExecutor = null;
+      return;
+    }
+    refreshExecutor = new ThreadPoolExecutor(
+        REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("yb-dns-%d").setDaemon(true).build());
+    refreshExecutor.allowCoreThreadTimeOut(true);
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_HOSTS)
+        .refreshAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+        .expireAfterAccess(ttlMs * IDLE_TTLS, TimeUnit.MILLISECONDS)
+        .build(CacheLoader.asyncReloading(new CacheLoader<String, String>() {
+          @Override
+          public String load(String host) throws UnknownHostException {
+            return lookup(host);
+          }
+        }, refreshExecutor));
+  }
+
+  /**
+   * Gets a hostname or an IP address and returns the textual representation of the IP address.
+   * <p>
+   * <strong>This method can block</strong> the first time a host is resolved, as there is no API
+   * for asynchronous DNS resolution in the JDK.
+   * @param host The hostname to resolve.
+   * @return The IP address associated with the given hostname,
+   * or {@code null} if the address couldn't be resolved.
+   */
+  String resolve(final String host) {
+    try {
+      return cache == null ? lookup(host) : cache.get(host);
+    } catch (UnknownHostException | ExecutionException | UncheckedExecutionException e) {
+      // Failures aren't cached, the next lookup of this host tries to resolve it again.
+      return null;
+    }
+  }
+
+  /**
+   * Resolves the given host without going through the cache.
+   */
+  @VisibleForTesting
+  static String lookup(final String host) throws UnknownHostException {
+    final long start = System.nanoTime();
+    try {
+      final String ip = InetAddress.getByName(host).getHostAddress();
+      final long latency = System.nanoTime() - start;
+      if (latency > 500000/*ns*/ && LOG.isDebugEnabled()) {
+        LOG.debug("Resolved IP of `" + host + "' to "
+            + ip + " in " + latency + "ns");
+      } else if (latency >= 3000000/*ns*/) {
+        LOG.warn("Slow DNS lookup!  Resolved IP of `" + host + "' to "
+            + ip + " in " + latency + "ns");
+      }
+      return ip;
+    } catch (UnknownHostException e) {
+      LOG.error("Failed to resolve the IP of `" + host + "' in "
+          + (System.nanoTime() - start) + "ns");
+      throw e;
+    }
+  }
+
+  @VisibleForTesting
+  long getTtlMs() {
+    return ttlMs;
+  }
+
+  /**
+   * Stops the background refreshes.
+   */
+  void close() {
+    if (refreshExecutor != null) {
+      refreshExecutor.shutdownNow();
+    }
+  }
+}
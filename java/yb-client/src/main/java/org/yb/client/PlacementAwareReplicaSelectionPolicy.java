@@ -0,0 +1,98 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import java.util.List;
+
+import org.yb.Common;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+import org.yb.master.Master;
+
+/**
+ * Selects replicas based on the cloud, region and zone of the client.
+ *
+ * Tablet servers in the same region as the client are reached on their private addresses, the
+ * other ones on their broadcast addresses when they have some. Replicas are ranked by the part of
+ * the placement they share with the client: same zone, then same region, then same cloud. A
+ * client with no placement reaches every tablet server on its broadcast address first and sees
+ * all the replicas as equally close.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class PlacementAwareReplicaSelectionPolicy implements ReplicaSelectionPolicy {
+  static final int SAME_ZONE = 0;
+  static final int SAME_REGION = 1;
+  static final int SAME_CLOUD = 2;
+  static final int REMOTE = 3;
+
+  private final Common.CloudInfoPB clientPlacement;
+
+  /**
+   * @param clientPlacement the placement of the client, or null if unknown
+   */
+  public PlacementAwareReplicaSelectionPolicy(Common.CloudInfoPB clientPlacement) {
+    this.clientPlacement = clientPlacement;
+  }
+
+  /**
+   * @param cloud the cloud the client runs in
+   * @param region the region the client runs in
+   * @param zone the zone the client runs in
+   */
+  public PlacementAwareReplicaSelectionPolicy(String cloud, String region, String zone) {
+    this(Common.CloudInfoPB.newBuilder()
+        .setPlacementCloud(cloud)
+        .setPlacementRegion(region)
+        .setPlacementZone(zone)
+        .build());
+  }
+
+  @Override
+  public Common.HostPortPB selectAddress(Master.TSInfoPB tsInfo) {
+    List<Common.HostPortPB> addresses = tsInfo.getBroadcastAddressesList();
+    if (addresses.isEmpty() ||
+        (clientPlacement != null && tsInfo.getPrivateRpcAddressesCount() > 0 &&
+         distance(tsInfo.getCloudInfo()) <= SAME_REGION)) {
+      addresses = tsInfo.getPrivateRpcAddressesList();
+    }
+    return addresses.get(0);
+  }
+
+  @Override
+  public int distance(Common.CloudInfoPB replicaPlacement) {
+    if (clientPlacement == null) {
+      return SAME_ZONE;
+    }
+    if (!clientPlacement.getPlacementCloud().equals(replicaPlacement.getPlacementCloud())) {
+      return REMOTE;
+    }
+    if (!clientPlacement.getPlacementRegion().equals(replicaPlacement.getPlacementRegion())) {
+      return SAME_CLOUD;
+    }
+    if (!clientPlacement.getPlacementZone().equals(replicaPlacement.getPlacementZone())) {
+      return SAME_REGION;
+    }
+    return SAME_ZONE;
+  }
+
+  @Override
+  public String toString() {
+    if (clientPlacement == null) {
+      return "PlacementAwareReplicaSelectionPolicy(no placement)";
+    }
+    return "PlacementAwareReplicaSelectionPolicy(" + clientPlacement.getPlacementCloud() + "." +
+        clientPlacement.getPlacementRegion() + "." + clientPlacement.getPlacementZone() + ")";
+  }
+}
@@ -0,0 +1,45 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.Common;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+import org.yb.master.Master;
+
+/**
+ * Decides how {@link AsyncYBClient} reaches the replicas of a tablet: which of the addresses a
+ * tablet server advertises to connect to, and which replicas are closest to the client, for the
+ * RPCs that don't need to go to the leader. Implementations are shared by every tablet of a
+ * client and must be thread-safe.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface ReplicaSelectionPolicy {
+  /**
+   * Picks the address to connect to a tablet server with.
+   * @param tsInfo the registration of the tablet server, with at least one address
+   * @return one of the addresses of the tablet server
+   */
+  Common.HostPortPB selectAddress(Master.TSInfoPB tsInfo);
+
+  /**
+   * Returns how far a replica is from the client. Replicas at the smallest distance are the
+   * closest, and are used interchangeably.
+   * @param replicaPlacement the placement of the tablet server hosting the replica, may be empty
+   *                         if the tablet server didn't report one
+   * @return a distance, 0 or more
+   */
+  int distance(Common.CloudInfoPB replicaPlacement);
+}
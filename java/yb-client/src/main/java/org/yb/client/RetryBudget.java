@@ -0,0 +1,90 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Limits the retries a client sends, relative to the requests it sends, so that a struggling
+ * cluster isn't buried under retries on top of its normal load.
+ * <p>
+ * Every new request deposits {@code retryRatio} in the budget and every retry withdraws 1 from
+ * it. The budget is also refilled at {@code minRetriesPerSec} so that a client sending few
+ * requests can still retry. It never holds more than ten seconds worth of that minimum, which is
+ * also what it starts with.
+ */
+class RetryBudget {
+  private static final long NANOS_PER_SEC = 1000000000L;
+
+  private final double retryRatio;
+  private final double minRetriesPerSec;
+  private final double capacity;
+  private final Ticker ticker;
+
+  @GuardedBy("this")
+  private double balance;
+  @GuardedBy("this")
+  private long lastRefillNanos;
+
+  RetryBudget(double retryRatio, int minRetriesPerSec) {
+    this(retryRatio, minRetriesPerSec, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  RetryBudget(double retryRatio, int minRetriesPerSec, Ticker ticker) {
+    Preconditions.checkArgument(retryRatio >= 0, "retryRatio should not be negative");
+    Preconditions.checkArgument(minRetriesPerSec >= 0, "minRetriesPerSec should not be negative");
+    this.retryRatio = retryRatio;
+    this.minRetriesPerSec = minRetriesPerSec;
+    this.capacity = Math.max(1, 10 * minRetriesPerSec);
+    this.ticker = ticker;
+    this.balance = capacity;
+    this.lastRefillNanos = ticker.read();
+  }
+
+  /** Records a new request, i.e. the first attempt of an RPC. */
+  synchronized void deposit() {
+    refill();
+    balance = Math.min(capacity, balance + retryRatio);
+  }
+
+  /**
+   * Takes one retry out of the budget.
+   * @return true if the retry can go ahead, false if the budget is exhausted
+   */
+  synchronized boolean tryWithdraw() {
+    refill();
+    if (balance < 1) {
+      return false;
+    }
+    balance -= 1;
+    return true;
+  }
+
+  private void refill() {
+    long now = ticker.read();
+    double elapsedSecs = (double) (now - lastRefillNanos) / NANOS_PER_SEC;
+    lastRefillNanos = now;
+    balance = Math.min(capacity, balance + elapsedSecs * minRetriesPerSec);
+  }
+
+  @Override
+  public String toString() {
+    return "RetryBudget(ratio=" + retryRatio + ", minRetriesPerSec=" + minRetriesPerSec + ")";
+  }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+/**
+ * Decides how long {@link AsyncYBClient} waits before retrying an RPC that failed with a
+ * retryable error. Implementations are shared by every RPC of a client and must be thread-safe.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface RetryPolicy {
+  /**
+   * Returns how long to sleep before the next attempt of an RPC.
+   * @param attempt the number of attempts made so far, at least 1
+   * @param lastSleepTimeMs how long the RPC slept before its previous attempt, or 0 if this is its
+   *                        first retry
+   * @return the time to sleep in milliseconds
+   */
+  long getSleepTimeMs(int attempt, long lastSleepTimeMs);
+}
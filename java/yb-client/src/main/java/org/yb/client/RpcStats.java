@@ -0,0 +1,120 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the RPC metrics of one {@link AsyncYBClient}. Recording is lock-free so it can be done
+ * on every RPC, a consistent view is only built when {@link #snapshot} is called.
+ */
+class RpcStats {
+  /** Why an RPC had to be retried. */
+  enum RetryReason {
+    TABLET_NOT_FOUND,
+    NOT_LEADER,
+    CONNECTION_RESET,
+    SERVER_ERROR,
+    NO_LEADER_MASTER,
+  }
+
+  // Latency of each RPC attempt, keyed by "service.method".
+  private final ConcurrentHashMap<String, LatencyHistogram> latencies =
+      new ConcurrentHashMap<>();
+  private final EnumMap<RetryReason, LongAdder> retries = new EnumMap<>(RetryReason.class);
+  private final LongAdder retriesRejected = new LongAdder();
+  private final LongAdder tabletCacheHits = new LongAdder();
+  private final LongAdder tabletCacheMisses = new LongAdder();
+  private final LongAdder masterLookups = new LongAdder();
+  private final LongAdder masterLookupsCoalesced = new LongAdder();
+  private final LatencyHistogram masterPermitWaits = new LatencyHistogram();
+  private final LongAdder masterPermitTimeouts = new LongAdder();
+
+  RpcStats() {
+    for (RetryReason reason : RetryReason.values()) {
+      retries.put(reason, new LongAdder());
+    }
+  }
+
+  void recordRpcLatency(String service, String method, long nanos) {
+    final String key = service + "." + method;
+    LatencyHistogram histogram = latencies.get(key);
+    if (histogram == null) {
+      final LatencyHistogram newHistogram = new LatencyHistogram();
+      histogram = latencies.putIfAbsent(key, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+      }
+    }
+    histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  void recordRetry(RetryReason reason) {
+    retries.get(reason).increment();
+  }
+
+  void recordRetryRejected() {
+    retriesRejected.increment();
+  }
+
+  void recordTabletCacheLookup(boolean hit) {
+    (hit ? tabletCacheHits : tabletCacheMisses).increment();
+  }
+
+  void recordMasterLookup() {
+    masterLookups.increment();
+  }
+
+  void recordMasterLookupCoalesced() {
+    masterLookupsCoalesced.increment();
+  }
+
+  void recordMasterPermitWait(long nanos, boolean acquired) {
+    masterPermitWaits.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    if (!acquired) {
+      masterPermitTimeouts.increment();
+    }
+  }
+
+  /**
+   * @param clients the connections of the client, to sample their queues from
+   * @param tabletLocations the tablet locations cache of the client, to sample its size from
+   */
+  RpcStatsSnapshot snapshot(List<TabletClient> clients, TabletLocationsCache tabletLocations) {
+    final Map<String, RpcStatsSnapshot.Latency> rpcLatencies = new HashMap<>();
+    for (Map.Entry<String, LatencyHistogram> e : latencies.entrySet()) {
+      rpcLatencies.put(e.getKey(), e.getValue().snapshot());
+    }
+    final Map<String, Long> retryCounts = new HashMap<>();
+    for (Map.Entry<RetryReason, LongAdder> e : retries.entrySet()) {
+      retryCounts.put(e.getKey().name().toLowerCase(), e.getValue().sum());
+    }
+    long pendingRpcs = 0;
+    long inflightRpcs = 0;
+    for (TabletClient client : clients) {
+      pendingRpcs += client.getNumPendingRpcs();
+      inflightRpcs += client.getNumInflightRpcs();
+    }
+    return new RpcStatsSnapshot(rpcLatencies, retryCounts, retriesRejected.sum(),
+        tabletCacheHits.sum(), tabletCacheMisses.sum(), masterLookups.sum(),
+        masterLookupsCoalesced.sum(), masterPermitWaits.snapshot(), masterPermitTimeouts.sum(),
+        clients.size(), pendingRpcs, inflightRpcs, tabletLocations.getNumTables(),
+        tabletLocations.getNumTablets(), tabletLocations.getEstimatedBytes());
+  }
+}
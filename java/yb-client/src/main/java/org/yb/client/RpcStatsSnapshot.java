@@ -0,0 +1,222 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+import org.yb.annotations.InterfaceStability;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Point-in-time view of the RPC metrics of a client, as returned by
+ * {@link AsyncYBClient#getRpcStats()}. Counters are cumulative since the client was created.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class RpcStatsSnapshot {
+
+  /** Latency distribution, all times are in microseconds. */
+  @InterfaceAudience.Public
+  @InterfaceStability.Evolving
+  public static class Latency {
+    private final long count;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    Latency(long count, long meanMicros, long p50Micros, long p99Micros, long p999Micros,
+            long maxMicros) {
+      this.count = count;
+      this.meanMicros = meanMicros;
+      this.p50Micros = p50Micros;
+      this.p99Micros = p99Micros;
+      this.p999Micros = p999Micros;
+      this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMeanMicros() {
+      return meanMicros;
+    }
+
+    public long getP50Micros() {
+      return p50Micros;
+    }
+
+    public long getP99Micros() {
+      return p99Micros;
+    }
+
+    public long getP999Micros() {
+      return p999Micros;
+    }
+
+    public long getMaxMicros() {
+      return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + " mean=" + meanMicros + "us p50=" + p50Micros + "us p99=" +
+          p99Micros + "us p99.9=" + p999Micros + "us max=" + maxMicros + "us";
+    }
+  }
+
+  private final Map<String, Latency> rpcLatencies;
+  private final Map<String, Long> retries;
+  private final long retriesRejected;
+  private final long tabletCacheHits;
+  private final long tabletCacheMisses;
+  private final long masterLookups;
+  private final long masterLookupsCoalesced;
+  private final Latency masterPermitWaits;
+  private final long masterPermitTimeouts;
+  private final long numConnections;
+  private final long pendingRpcs;
+  private final long inflightRpcs;
+  private final long tabletCacheTables;
+  private final long tabletCacheTablets;
+  private final long tabletCacheBytes;
+
+  RpcStatsSnapshot(Map<String, Latency> rpcLatencies, Map<String, Long> retries,
+                   long retriesRejected, long tabletCacheHits, long tabletCacheMisses,
+                   long masterLookups, long masterLookupsCoalesced, Latency masterPermitWaits,
+                   long masterPermitTimeouts, long numConnections, long pendingRpcs,
+                   long inflightRpcs, long tabletCacheTables, long tabletCacheTablets,
+                   long tabletCacheBytes) {
+    this.rpcLatencies = Collections.unmodifiableMap(new TreeMap<>(rpcLatencies));
+    this.retries = Collections.unmodifiableMap(new TreeMap<>(retries));
+    this.retriesRejected = retriesRejected;
+    this.tabletCacheHits = tabletCacheHits;
+    this.tabletCacheMisses = tabletCacheMisses;
+    this.masterLookups = masterLookups;
+    this.masterLookupsCoalesced = masterLookupsCoalesced;
+    this.masterPermitWaits = masterPermitWaits;
+    this.masterPermitTimeouts = masterPermitTimeouts;
+    this.numConnections = numConnections;
+    this.pendingRpcs = pendingRpcs;
+    this.inflightRpcs = inflightRpcs;
+    this.tabletCacheTables = tabletCacheTables;
+    this.tabletCacheTablets = tabletCacheTablets;
+    this.tabletCacheBytes = tabletCacheBytes;
+  }
+
+  /**
+   * @return the latency of RPC attempts, from being written to the connection to their response
+   * being decoded, keyed by "service.method"
+   */
+  public Map<String, Latency> getRpcLatencies() {
+    return rpcLatencies;
+  }
+
+  /**
+   * @return the number of retries, keyed by reason: tablet_not_found, not_leader,
+   * connection_reset, server_error or no_leader_master
+   */
+  public Map<String, Long> getRetries() {
+    return retries;
+  }
+
+  /** @return the number of retries that were not attempted because the retry budget ran out */
+  public long getRetriesRejected() {
+    return retriesRejected;
+  }
+
+  public long getTabletCacheHits() {
+    return tabletCacheHits;
+  }
+
+  public long getTabletCacheMisses() {
+    return tabletCacheMisses;
+  }
+
+  /** @return the number of GetTableLocations RPCs sent to the master */
+  public long getMasterLookups() {
+    return masterLookups;
+  }
+
+  /** @return the number of tablet lookups that waited on one already in flight for the table */
+  public long getMasterLookupsCoalesced() {
+    return masterLookupsCoalesced;
+  }
+
+  /** @return how long lookups waited for a master lookup permit */
+  public Latency getMasterPermitWaits() {
+    return masterPermitWaits;
+  }
+
+  /** @return the number of lookups that gave up waiting for a master lookup permit */
+  public long getMasterPermitTimeouts() {
+    return masterPermitTimeouts;
+  }
+
+  /** @return the number of connections to tablet servers and masters */
+  public long getNumConnections() {
+    return numConnections;
+  }
+
+  /** @return the number of RPCs buffered while their connection is being established */
+  public long getPendingRpcs() {
+    return pendingRpcs;
+  }
+
+  /** @return the number of RPCs sent and waiting for a response */
+  public long getInflightRpcs() {
+    return inflightRpcs;
+  }
+
+  /** @return the number of tables whose tablet locations are cached */
+  public long getTabletCacheTables() {
+    return tabletCacheTables;
+  }
+
+  /** @return the number of tablets whose locations are cached */
+  public long getTabletCacheTablets() {
+    return tabletCacheTablets;
+  }
+
+  /** @return the estimated size in bytes of the cached tablet locations */
+  public long getTabletCacheBytes() {
+    return tabletCacheBytes;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("connections=").append(numConnections)
+        .append(" pending_rpcs=").append(pendingRpcs)
+        .append(" rpcs_inflight=").append(inflightRpcs)
+        .append(" tablet_cache_hits=").append(tabletCacheHits)
+        .append(" tablet_cache_misses=").append(tabletCacheMisses)
+        .append(" tablet_cache_tables=").append(tabletCacheTables)
+        .append(" tablet_cache_tablets=").append(tabletCacheTablets)
+        .append(" tablet_cache_bytes=").append(tabletCacheBytes)
+        .append(" master_lookups=").append(masterLookups)
+        .append(" master_lookups_coalesced=").append(masterLookupsCoalesced)
+        .append(" master_permit_timeouts=").append(masterPermitTimeouts)
+        .append(" retries=").append(retries)
+        .append(" retries_rejected=").append(retriesRejected)
+        .append("\nmaster permit waits: ").append(masterPermitWaits);
+    for (Map.Entry<String, Latency> e : rpcLatencies.entrySet()) {
+      sb.append('\n').append(e.getKey()).append(": ").append(e.getValue());
+    }
+    return sb.toString();
+  }
+}
@@ -41,12 +41,14 @@
 //
 package org.yb.client;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.stumbleupon.async.Deferred;
 
 import org.jboss.netty.channel.ConnectTimeoutException;
 import org.jboss.netty.handler.timeout.ReadTimeoutException;
 import org.yb.WireProtocol;
 import org.yb.annotations.InterfaceAudience;
+import org.yb.cdc.CdcService;
 import org.yb.master.Master;
 import org.yb.rpc.RpcHeader;
 import org.yb.tserver.Tserver;
@@ -62,8 +64,7 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.handler.codec.replay.ReplayingDecoder;
-import org.jboss.netty.handler.codec.replay.VoidEnum;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -96,12 +97,15 @@ import java.util.concurrent.atomic.AtomicInteger;
  * channel isn't connected.
  */
 @InterfaceAudience.Private
-public class TabletClient extends ReplayingDecoder<VoidEnum> {
+public class TabletClient extends FrameDecoder {
 
   public static final Logger LOG = LoggerFactory.getLogger(TabletClient.class);
 
   private ArrayList<YRpc<?>> pending_rpcs;
 
+  /** Size of the length prefix of every response frame. */
+  private static final int FRAME_LENGTH_SIZE = 4;
+
   /** The connection header.  */
   private static final byte[] RPC_HEADER = new byte[] { 'Y', 'B', 1 };
   public static final int CONNECTION_CTX_CALL_ID = -3;
@@ -231,6 +235,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         rpc.errback(e);  // Make the RPC fail with the exception.
         return null;
     }
+    rpc.sendTimeNanos = System.nanoTime();
     final YRpc<?> oldrpc = rpcs_inflight.put(rpcid, rpc);
     if (oldrpc != null) {
       final String wtf = getPeerUuidLoggingString() +
@@ -311,28 +316,50 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return d;
   }
 
+  /**
+   * Waits until a whole response frame has been received, then hands it to
+   * {@link #decodeFrame}. Until then only the length prefix is looked at, so a
+   * large response arriving in many pieces is parsed once, and the frame is a
+   * slice of the received bytes rather than a copy.
+   * @return {@code null}, always.
+   */
+  @Override
+  protected Object decode(final ChannelHandlerContext ctx, final Channel chan,
+                          final ChannelBuffer buf) {
+    if (buf.readableBytes() < FRAME_LENGTH_SIZE) {
+      return null;
+    }
+    final int rdx = buf.readerIndex();
+    final int frameSize = buf.getInt(rdx);
+    YRpc.checkArrayLength(buf, frameSize);
+    if (buf.readableBytes() < FRAME_LENGTH_SIZE + frameSize) {
+      return null;  // Wait for more data.
+    }
+    final ChannelBuffer frame = buf.slice(rdx, FRAME_LENGTH_SIZE + frameSize);
+    buf.skipBytes(FRAME_LENGTH_SIZE + frameSize);
+    decodeFrame(frame);
+    // Having consumed the frame, FrameDecoder calls us again for the next one.
+    return null;
+  }
+
   /**
    * The reason we are suppressing the unchecked conversions is because the YRpc is coming
    * from a collection that has RPCs with different generics, and there's no way to get "decoded"
    * casted correctly. The best we can do is to rely on the RPC to decode correctly,
    * and to not pass an Exception in the callback.
+   * @param buf A buffer holding exactly one response frame, length prefix included.
    */
-  @Override
   @SuppressWarnings("unchecked")
-  protected Object decode(ChannelHandlerContext ctx, Channel chan, ChannelBuffer buf,
-                              VoidEnum voidEnum) {
+  @VisibleForTesting
+  void decodeFrame(final ChannelBuffer buf) {
     final long start = System.nanoTime();
     final int rdx = buf.readerIndex();
     LOG.debug("------------------>> ENTERING DECODE >>------------------");
 
-    if (buf == null) {
-      return null;
-    }
-
     CallResponse response = new CallResponse(buf);
     if (response.isEmpty()) {
       // Skip empty messages which we are using as heartbeats.
-      return null;
+      return;
     }
 
     RpcHeader.ResponseHeader header = response.getHeader();
@@ -399,12 +426,14 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         // The RPC we were decoding was cleaned up already, give up.
         throw new NonRecoverableException("RPC not found");
       }
+      ybClient.getRpcStatsRecorder().recordRpcLatency(rpc.serviceName(), rpc.method(),
+          System.nanoTime() - rpc.sendTimeNanos);
     }
 
     // This check is specifically for the ERROR_SERVER_TOO_BUSY case above.
     if (retryableHeaderException != null) {
       ybClient.handleRetryableError(rpc, retryableHeaderException, this);
-      return null;
+      return;
     }
 
     // We can get this Message from within the RPC's expected type,
@@ -416,7 +445,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         exception = dispatchTSErrorOrReturnException(rpc, error);
         if (exception == null) {
           // It was taken care of.
-          return null;
+          return;
         } else {
           // We're going to errback.
           decoded = null;
@@ -427,10 +456,17 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
         exception = dispatchMasterErrorOrReturnException(rpc, error);
         if (exception == null) {
           // Exception was taken care of.
-          return null;
+          return;
         } else {
           decoded = null;
         }
+      } else if (decoded.getSecond() instanceof CdcService.CDCErrorPB &&
+                 rpc.getTablet() != null) {
+        // Only CDC RPCs routed through the tablet cache can be failed over, the others are sent
+        // to a fixed server and get the error back in their response.
+        if (dispatchCDCError(rpc, (CdcService.CDCErrorPB) decoded.getSecond())) {
+          return;
+        }
       }
     }
 
@@ -449,7 +485,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
       LOG.debug("------------------<< LEAVING  DECODE <<------------------"
           + " time elapsed: " + ((System.nanoTime() - start) / 1000) + "us");
     }
-    return null;  // Stop processing here.  The Deferred does everything else.
+    // Stop processing here.  The Deferred does everything else.
   }
 
   /**
@@ -489,6 +525,30 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return null;
   }
 
+  /**
+   * Takes care of the CDC errors that mean the tablet moved or its leader changed.
+   * @param rpc The original RPC call that triggered the error.
+   * @param error The error the CDC service sent.
+   * @return True if the error was taken care of, false if it has to be returned to the caller.
+   */
+  private boolean dispatchCDCError(YRpc rpc, CdcService.CDCErrorPB error) {
+    YBServerException ex = new YBServerException(uuid, error.getStatus());
+    switch (error.getCode()) {
+      case TABLET_NOT_FOUND:
+        ybClient.handleTabletNotFound(rpc, ex, this);
+        return true;
+      case NOT_LEADER:
+      case TABLET_NOT_RUNNING:
+        ybClient.handleNotLeader(rpc, ex, this);
+        return true;
+      case LEADER_NOT_READY:
+        ybClient.handleRetryableError(rpc, ex, this);
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * Provides different handling for various kinds of master errors: re-uses the
    * mechanisms already in place for handling tablet server errors as much as possible.
@@ -530,8 +590,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   @Override
   protected Object decodeLast(final ChannelHandlerContext ctx,
                               final Channel chan,
-                              final ChannelBuffer buf,
-                              final VoidEnum unused) {
+                              final ChannelBuffer buf) {
     // When we disconnect, decodeLast is called instead of decode.
     // We simply check whether there's any data left in the buffer, in which
     // case we attempt to process it.  But if there's no data left, then we
@@ -539,7 +598,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     // doesn't contain enough data, which unnecessarily pollutes the logs.
     if (buf.readable()) {
       try {
-        return decode(ctx, chan, buf, unused);
+        return decode(ctx, chan, buf);
       } finally {
         if (buf.readable()) {
           LOG.error(getPeerUuidLoggingString() + "After decoding the last message on " + chan
@@ -575,18 +634,14 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     return !dead;
   }
 
-  /**
-   * Ensures that at least a {@code nbytes} are readable from the given buffer.
-   * If there aren't enough bytes in the buffer this will raise an exception
-   * and cause the {@link ReplayingDecoder} to undo whatever we did thus far
-   * so we can wait until we read more from the socket.
-   * @param buf Buffer to check.
-   * @param nbytes Number of bytes desired.
-   */
-  static void ensureReadable(final ChannelBuffer buf, final int nbytes) {
-    buf.markReaderIndex();
-    buf.skipBytes(nbytes); // can puke with Throwable
-    buf.resetReaderIndex();
+  /** @return the number of RPCs buffered until this client connects */
+  synchronized int getNumPendingRpcs() {
+    return pending_rpcs == null ? 0 : pending_rpcs.size();
+  }
+
+  /** @return the number of RPCs sent and waiting for a response */
+  int getNumInflightRpcs() {
+    return rpcs_inflight.size();
   }
 
   @Override
@@ -612,7 +667,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
   public void channelDisconnected(final ChannelHandlerContext ctx,
                                   final ChannelStateEvent e) throws Exception {
     chan = null;
-    super.channelDisconnected(ctx, e);  // Let the ReplayingDecoder cleanup.
+    super.channelDisconnected(ctx, e);  // Let the FrameDecoder cleanup.
     cleanup(e.getChannel());
   }
 
@@ -623,7 +678,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     // No need to call super.channelClosed() because we already called
     // super.channelDisconnected().  If we get here without getting a
     // DISCONNECTED event, then we were never connected in the first place so
-    // the ReplayingDecoder has nothing to cleanup.
+    // the FrameDecoder has nothing to cleanup.
     cleanup(e.getChannel());
   }
 
@@ -694,7 +749,7 @@ public class TabletClient extends ReplayingDecoder<VoidEnum> {
     } else if (e instanceof ReadTimeoutException) {
       LOG.debug(getPeerUuidLoggingString() + "Encountered a read timeout");
       // Doing the cleanup here since we want to invalidate all the RPCs right _now_, and not let
-      // the ReplayingDecoder continue decoding through Channels.close() below.
+      // the FrameDecoder continue decoding through Channels.close() below.
       cleanup(c);
     } else {
       LOG.debug(getPeerUuidLoggingString() + "Unexpected exception " + e.getMessage() +
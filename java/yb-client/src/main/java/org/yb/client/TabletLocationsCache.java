@@ -0,0 +1,375 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.yb.annotations.InterfaceAudience;
+import org.yb.client.AsyncYBClient.RemoteTablet;
+import org.yb.util.Slice;
+
+/**
+ * Caches where the tablets of the tables used by a client are, and which tablets each connection
+ * serves.
+ * <p>
+ * The tablets of a table are indexed by an immutable array of their start keys, sorted, which
+ * lookups binary search without locking. A refresh builds a new index merging the discovered
+ * tablets with the ones still valid, and swaps it in atomically, so a lookup always sees a
+ * consistent set of tablets for a table.
+ * <p>
+ * The cache is bounded: tables not looked up for the TTL are dropped, and when the estimated size
+ * of the cached locations goes over the maximum, the least recently used tables are dropped. A table
+ * bigger than the maximum is cached alone. The tablets of a dropped table are also forgotten by
+ * their connections. The next RPC to a dropped
+ * table looks its tablets up again in the master.
+ */
+@InterfaceAudience.Private
+final class TabletLocationsCache {
+
+  // Estimated size of a cached tablet besides its keys and id: the RemoteTablet, its Partition
+  // and replica lists, and its slots in the index and in the sets of its connections.
+  static final int TABLET_OVERHEAD_BYTES = 512;
+
+  private static final Comparator<RemoteTablet> BY_START_KEY = new Comparator<RemoteTablet>() {
+    @Override
+    public int compare(RemoteTablet a, RemoteTablet b) {
+      return Bytes.memcmp(a.getPartition().getPartitionKeyStart(),
+                          b.getPartition().getPartitionKeyStart());
+    }
+  };
+
+  private final Cache<String, TableLocations> tables;
+
+  // The tablets each connection serves, to forget the connection in them when it disconnects.
+  // Holds the same RemoteTablets as the cached tables: they're compared by identity, as a tablet
+  // that replaces another one of the same partition is equal to it.
+  private final ConcurrentHashMap<TabletClient, Set<RemoteTablet>> clientTablets =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param maxBytes the maximum estimated size of the cached locations. A table bigger than this
+   *                 is still cached, evicting all the others, since its RPCs would otherwise look
+   *                 their tablets up in the master every time.
+   * @param ttlMs how long the tablets of a table are kept without being looked up, 0 to keep them
+   *              until they are evicted for size
+   */
+  TabletLocationsCache(final long maxBytes, long ttlMs) {
+    // Tables are only added on master lookups, a single segment is enough and keeps the whole
+    // cache under maxBytes rather than each segment under its share.
+    CacheBuilder<String, TableLocations> builder = CacheBuilder.newBuilder()
+        .concurrencyLevel(1)
+        .maximumWeight(maxBytes)
+        .weigher(new Weigher<String, TableLocations>() {
+          @Override
+          public int weigh(String tableId, TableLocations locations) {
+            // The cache drops an entry heavier than the maximum as soon as it's added.
+            return (int) Math.min(locations.estimatedBytes, maxBytes);
+          }
+        })
+        .removalListener(new RemovalListener<String, TableLocations>() {
+          @Override
+          public void onRemoval(RemovalNotification<String, TableLocations> notification) {
+            // Tablets of a replaced index are forgotten by the swap, only those still valid were
+            // carried over.
+            if (notification.getCause() != RemovalCause.REPLACED) {
+              forgetTablets(Arrays.asList(notification.getValue().tablets));
+            }
+          }
+        });
+    if (ttlMs > 0) {
+      builder.expireAfterAccess(ttlMs, TimeUnit.MILLISECONDS);
+    }
+    tables = builder.build();
+  }
+
+  /**
+   * Finds the tablet of a table serving a partition key.
+   * @return the tablet, or null if the table isn't cached or none of its cached tablets serves
+   *         the key
+   */
+  RemoteTablet get(String tableId, byte[] partitionKey) {
+    TableLocations locations = tables.getIfPresent(tableId);
+    return locations == null ? null : locations.find(partitionKey);
+  }
+
+  /**
+   * @return the tablet of the table with the lowest start key, or null if the table isn't cached
+   */
+  RemoteTablet getFirst(String tableId) {
+    TableLocations locations = tables.getIfPresent(tableId);
+    return locations == null || locations.tablets.length == 0 ? null : locations.tablets[0];
+  }
+
+  /**
+   * @return the cached tablet with the given id starting at startKey, or null if there is none
+   */
+  RemoteTablet get(String tableId, Slice tabletId, byte[] startKey) {
+    TableLocations locations = tables.getIfPresent(tableId);
+    if (locations == null) {
+      return null;
+    }
+    int index = locations.indexOf(startKey);
+    if (index < 0 || !locations.tablets[index].getTabletId().equals(tabletId)) {
+      return null;
+    }
+    return locations.tablets[index];
+  }
+
+  /**
+   * Adds the tablets of a table discovered in the master. They replace the cached tablets of the
+   * table whose partitions overlap theirs, which were split or belong to a dropped incarnation of
+   * the table.
+   */
+  void putAll(String tableId, List<RemoteTablet> discovered) {
+    if (discovered.isEmpty()) {
+      return;
+    }
+    ConcurrentMap<String, TableLocations> map = tables.asMap();
+    while (true) {
+      TableLocations current = map.get(tableId);
+      List<RemoteTablet> dropped = new ArrayList<>();
+      TableLocations updated = TableLocations.merge(current, discovered, dropped);
+      boolean swapped = current == null ?
+          map.putIfAbsent(tableId, updated) == null : map.replace(tableId, current, updated);
+      if (swapped) {
+        forgetTablets(dropped);
+        return;
+      }
+      // Someone else refreshed the table in the meantime, merge with theirs.
+    }
+  }
+
+  /**
+   * Drops the tablets of a table.
+   */
+  void invalidate(String tableId) {
+    tables.invalidate(tableId);
+  }
+
+  /**
+   * Registers a new connection, which doesn't serve any tablet yet.
+   */
+  void addClient(TabletClient client) {
+    clientTablets.put(client, Collections.newSetFromMap(
+        new IdentityHashMap<RemoteTablet, Boolean>()));
+  }
+
+  /**
+   * Forgets a connection.
+   * @return the tablets it was serving, or null if it was already removed
+   */
+  RemoteTablet[] removeClient(TabletClient client) {
+    Set<RemoteTablet> tablets = clientTablets.remove(client);
+    if (tablets == null) {
+      return null;
+    }
+    // If any other thread still has a reference to the set, their updates will be lost (and we
+    // don't care).
+    synchronized (tablets) {
+      return tablets.toArray(new RemoteTablet[tablets.size()]);
+    }
+  }
+
+  /**
+   * Records that a connection serves a tablet.
+   * @return false if the connection was removed in the meantime
+   */
+  boolean addReplica(TabletClient client, RemoteTablet tablet) {
+    Set<RemoteTablet> tablets = clientTablets.get(client);
+    if (tablets == null) {
+      return false;
+    }
+    synchronized (tablets) {
+      tablets.add(tablet);
+    }
+    return true;
+  }
+
+  /**
+   * Records that a connection no longer serves a tablet.
+   */
+  void removeReplica(TabletClient client, RemoteTablet tablet) {
+    Set<RemoteTablet> tablets = clientTablets.get(client);
+    if (tablets != null) {
+      synchronized (tablets) {
+        tablets.remove(tablet);
+      }
+    }
+  }
+
+  private void forgetTablets(List<RemoteTablet> tablets) {
+    for (RemoteTablet tablet : tablets) {
+      for (TabletClient client : tablet.getTabletServers()) {
+        removeReplica(client, tablet);
+      }
+    }
+  }
+
+  /** @return the number of cached tables */
+  long getNumTables() {
+    return tables.size();
+  }
+
+  /** @return the number of cached tablets */
+  long getNumTablets() {
+    long numTablets = 0;
+    for (TableLocations locations : tables.asMap().values()) {
+      numTablets += locations.tablets.length;
+    }
+    return numTablets;
+  }
+
+  /** @return the estimated size in bytes of the cached locations */
+  long getEstimatedBytes() {
+    long bytes = 0;
+    for (TableLocations locations : tables.asMap().values()) {
+      bytes += locations.estimatedBytes;
+    }
+    return bytes;
+  }
+
+  @VisibleForTesting
+  void cleanUp() {
+    tables.cleanUp();
+  }
+
+  @VisibleForTesting
+  int getNumClientTablets(TabletClient client) {
+    Set<RemoteTablet> tablets = clientTablets.get(client);
+    if (tablets == null) {
+      return 0;
+    }
+    synchronized (tablets) {
+      return tablets.size();
+    }
+  }
+
+  /**
+   * The tablets of a table, sorted by start key. Never modified once built.
+   */
+  private static final class TableLocations {
+    private final byte[][] startKeys;
+    private final RemoteTablet[] tablets;
+    private final int estimatedBytes;
+
+    private TableLocations(List<RemoteTablet> sortedTablets) {
+      int n = sortedTablets.size();
+      startKeys = new byte[n][];
+      tablets = sortedTablets.toArray(new RemoteTablet[n]);
+      long bytes = 0;
+      for (int i = 0; i < n; i++) {
+        Partition partition = tablets[i].getPartition();
+        startKeys[i] = partition.getPartitionKeyStart();
+        bytes += TABLET_OVERHEAD_BYTES + startKeys[i].length +
+            partition.getPartitionKeyEnd().length + tablets[i].getTabletId().length();
+      }
+      estimatedBytes = (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builds the index of current with the discovered tablets, filling dropped with the tablets
+     * of current that are replaced.
+     */
+    static TableLocations merge(TableLocations current, List<RemoteTablet> discovered,
+                                List<RemoteTablet> dropped) {
+      List<RemoteTablet> merged = new ArrayList<>(discovered);
+      if (current != null) {
+        Set<RemoteTablet> kept = Collections.newSetFromMap(
+            new IdentityHashMap<RemoteTablet, Boolean>());
+        kept.addAll(discovered);
+        for (RemoteTablet tablet : current.tablets) {
+          if (kept.contains(tablet)) {
+            continue;
+          }
+          if (overlapsAny(tablet, discovered)) {
+            dropped.add(tablet);
+          } else {
+            merged.add(tablet);
+          }
+        }
+      }
+      Collections.sort(merged, BY_START_KEY);
+      return new TableLocations(merged);
+    }
+
+    private static boolean overlapsAny(RemoteTablet tablet, List<RemoteTablet> others) {
+      Partition partition = tablet.getPartition();
+      for (RemoteTablet other : others) {
+        Partition otherPartition = other.getPartition();
+        if ((partition.isEndPartition() || Bytes.memcmp(otherPartition.getPartitionKeyStart(),
+                partition.getPartitionKeyEnd()) < 0) &&
+            (otherPartition.isEndPartition() || Bytes.memcmp(partition.getPartitionKeyStart(),
+                otherPartition.getPartitionKeyEnd()) < 0)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return the index of the tablet starting at key, or -(insertion point) - 1 if there is none
+     */
+    int indexOf(byte[] key) {
+      int low = 0;
+      int high = startKeys.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = Bytes.memcmp(startKeys[mid], key);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    RemoteTablet find(byte[] partitionKey) {
+      int index = indexOf(partitionKey);
+      if (index < 0) {
+        // The tablet with the greatest start key lower than the key.
+        index = -(index + 1) - 1;
+        if (index < 0) {
+          return null;
+        }
+      }
+      RemoteTablet tablet = tablets[index];
+      Partition partition = tablet.getPartition();
+      // If the partition is not the end partition, but it doesn't include the key
+      // we are looking for, then we have not yet found the correct tablet.
+      if (!partition.isEndPartition()
+          && Bytes.memcmp(partitionKey, partition.getPartitionKeyEnd()) >= 0) {
+        return null;
+      }
+      return tablet;
+    }
+  }
+}
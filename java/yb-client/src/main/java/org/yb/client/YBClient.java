@@ -47,10 +47,10 @@ import org.yb.Schema;
 import org.yb.Type;
 import org.yb.annotations.InterfaceAudience;
 import org.yb.annotations.InterfaceStability;
-import org.yb.consensus.Metadata;
 import org.yb.master.Master;
 import org.yb.tserver.Tserver;
 
+import com.google.common.math.LongMath;
 import com.google.common.net.HostAndPort;
 import com.stumbleupon.async.Deferred;
 import org.yb.util.Pair;
@@ -436,32 +436,27 @@ public class YBClient implements AutoCloseable {
     return null;
   }
 
+  /**
+   * Find the registration of the leader master, asking all the masters at once.
+   * @return The registration of the leader master, or null if no leader found.
+   */
+  private Master.TSInfoPB getLeaderMasterInfo() {
+    Deferred<Master.TSInfoPB> d = asyncClient.getLeaderMasterInfo();
+    try {
+      return d.join(getDefaultAdminOperationTimeoutMs());
+    } catch (Exception e) {
+      LOG.warn("Couldn't find the leader master due to error '{}'.", e.getMessage());
+    }
+    return null;
+  }
+
   /**
    * Find the uuid of the leader master.
    * @return The uuid of the leader master, or null if no leader found.
    */
   public String getLeaderMasterUUID() {
-    for (HostAndPort hostAndPort : asyncClient.getMasterAddresses()) {
-      Deferred<GetMasterRegistrationResponse> d;
-      TabletClient clientForHostAndPort = asyncClient.newMasterClient(hostAndPort);
-      if (clientForHostAndPort == null) {
-        String message = "Couldn't resolve this master's address " + hostAndPort.toString();
-        LOG.warn(message);
-      } else {
-        d = asyncClient.getMasterRegistration(clientForHostAndPort);
-        try {
-          GetMasterRegistrationResponse resp = d.join(getDefaultAdminOperationTimeoutMs());
-          if (resp.getRole() == Metadata.RaftPeerPB.Role.LEADER) {
-            return resp.getInstanceId().getPermanentUuid().toStringUtf8();
-          }
-        } catch (Exception e) {
-          LOG.warn("Couldn't get registration info for master {} due to error '{}'.",
-                   hostAndPort.toString(), e.getMessage());
-        }
-      }
-    }
-
-    return null;
+    Master.TSInfoPB leaderInfo = getLeaderMasterInfo();
+    return leaderInfo == null ? null : leaderInfo.getPermanentUuid().toStringUtf8();
   }
 
   /**
@@ -469,26 +464,9 @@ public class YBClient implements AutoCloseable {
    * @return The host and port of the leader master, or null if no leader found.
    */
   public HostAndPort getLeaderMasterHostAndPort() {
-    for (HostAndPort hostAndPort : asyncClient.getMasterAddresses()) {
-      Deferred<GetMasterRegistrationResponse> d;
-      TabletClient clientForHostAndPort = asyncClient.newMasterClient(hostAndPort);
-      if (clientForHostAndPort == null) {
-        String message = "Couldn't resolve this master's host/port " + hostAndPort.toString();
-        LOG.warn(message);
-      } else {
-        d = asyncClient.getMasterRegistration(clientForHostAndPort);
-        try {
-          GetMasterRegistrationResponse resp = d.join(getDefaultAdminOperationTimeoutMs());
-          if (resp.getRole() == Metadata.RaftPeerPB.Role.LEADER) {
-            return hostAndPort;
-          }
-        } catch (Exception e) {
-          LOG.warn("Couldn't get registration info for master " + hostAndPort.toString());
-        }
-      }
-    }
-
-    return null;
+    Master.TSInfoPB leaderInfo = getLeaderMasterInfo();
+    return leaderInfo == null ? null :
+        ProtobufHelper.hostAndPortFromPB(leaderInfo.getPrivateRpcAddresses(0));
   }
 
   /**
@@ -821,56 +799,6 @@ public class YBClient implements AutoCloseable {
     boolean get() throws Exception;
   }
 
-  /**
-   * Checks the ping of the given ip and port.
-   */
-  private class ServerCondition implements Condition {
-    private HostAndPort hp;
-    public ServerCondition(HostAndPort hp) {
-      this.hp = hp;
-    }
-    @Override
-    public boolean get() throws Exception {
-      return ping(hp.getHost(), hp.getPort());
-    }
-  }
-
-  /**
-   * Checks whether the IsLoadBalancedResponse has no error.
-   */
-  private class LoadBalanceCondition implements Condition {
-    private int numServers;
-    public LoadBalanceCondition(int numServers) {
-      this.numServers = numServers;
-    }
-    @Override
-    public boolean get() throws Exception {
-      IsLoadBalancedResponse resp = getIsLoadBalanced(numServers);
-      return !resp.hasError();
-    }
-  }
-
-  /**
-   * Checks whether the IsLoadBalancerIdleResponse has no error.
-   */
-  private class LoadBalancerIdleCondition implements Condition {
-    public LoadBalancerIdleCondition() {
-    }
-    @Override
-    public boolean get() throws Exception {
-      IsLoadBalancerIdleResponse resp = getIsLoadBalancerIdle();
-      return !resp.hasError();
-    }
-  }
-
-  private class AreLeadersOnPreferredOnlyCondition implements Condition {
-    @Override
-    public boolean get() throws Exception {
-      AreLeadersOnPreferredOnlyResponse resp = getAreLeadersOnPreferredOnly();
-      return !resp.hasError();
-    }
-  }
-
   private class ReplicaMapCondition implements Condition {
     private YBTable table;
     Map<String, List<List<Integer>>> replicaMapExpected;
@@ -890,20 +818,6 @@ public class YBClient implements AutoCloseable {
     }
   }
 
-  private class MasterHasUniverseKeyInMemoryCondition implements Condition {
-    private String universeKeyId;
-    private HostAndPort hp;
-    public MasterHasUniverseKeyInMemoryCondition(String universeKeyId, HostAndPort hp) {
-      this.universeKeyId = universeKeyId;
-      this.hp = hp;
-    }
-
-    @Override
-    public boolean get() throws Exception {
-      return hasUniverseKeyInMemory(universeKeyId, hp);
-    }
-  }
-
   /**
    * Quick and dirty error injection on Wait based API's.
    * After every use, for now, will get automatically disabled.
@@ -974,6 +888,34 @@ public class YBClient implements AutoCloseable {
     return false;
   }
 
+  /**
+   * Helper method that blocks until an asynchronous wait of the AsyncYBClient completes.
+   * The waiting itself doesn't hold any other thread than the caller's.
+   * @param wait starts the wait, given the amount of time, in MS, to wait.
+   * @param timeoutMs the amount of time, in MS, to wait.
+   * @return true if the condition waited for held within the time frame, false otherwise.
+   */
+  private boolean waitForAsync(AsyncWait wait, final long timeoutMs) {
+    try {
+      if (injectWaitError) {
+        injectWaitError = false;
+        asyncClient.injectWaitError();
+      }
+      Deferred<Boolean> d = wait.start(timeoutMs);
+      // The wait gives up on its own after timeoutMs, leave its last check the time of an admin
+      // RPC to complete.
+      long joinTimeoutMs = LongMath.saturatedAdd(timeoutMs, getDefaultAdminOperationTimeoutMs());
+      return joinTimeoutMs == Long.MAX_VALUE ? d.join() : d.join(joinTimeoutMs);
+    } catch (Exception e) {
+      LOG.error("Failed waiting for operation.", e);
+      return false;
+    }
+  }
+
+  private interface AsyncWait {
+    Deferred<Boolean> start(long timeoutMs);
+  }
+
   /**
   * Wait for the specific server to come online.
   * @param hp the HostAndPort of the server
@@ -981,8 +923,11 @@ public class YBClient implements AutoCloseable {
   * @return true if the server responded to pings in the given time, false otherwise
   */
   public boolean waitForServer(final HostAndPort hp, final long timeoutMs) {
-    Condition serverCondition = new ServerCondition(hp);
-    return waitForCondition(serverCondition, timeoutMs);
+    return waitForAsync(new AsyncWait() {
+      public Deferred<Boolean> start(long timeoutMs) {
+        return asyncClient.waitForServer(hp, timeoutMs);
+      }
+    }, timeoutMs);
   }
 
   /**
@@ -991,9 +936,12 @@ public class YBClient implements AutoCloseable {
   * @param numServers expected number of servers which need to balanced.
   * @return true if the master leader does not return any error balance check.
   */
-  public boolean waitForLoadBalance(final long timeoutMs, int numServers) {
-    Condition loadBalanceCondition = new LoadBalanceCondition(numServers);
-    return waitForCondition(loadBalanceCondition, timeoutMs);
+  public boolean waitForLoadBalance(final long timeoutMs, final int numServers) {
+    return waitForAsync(new AsyncWait() {
+      public Deferred<Boolean> start(long timeoutMs) {
+        return asyncClient.waitForLoadBalance(timeoutMs, numServers);
+      }
+    }, timeoutMs);
   }
 
   /**
@@ -1002,8 +950,11 @@ public class YBClient implements AutoCloseable {
   * @return true if the master leader does not return any error balance check.
   */
   public boolean waitForLoadBalancerIdle(final long timeoutMs) {
-    Condition loadBalancerIdleCondition = new LoadBalancerIdleCondition();
-    return waitForCondition(loadBalancerIdleCondition, timeoutMs);
+    return waitForAsync(new AsyncWait() {
+      public Deferred<Boolean> start(long timeoutMs) {
+        return asyncClient.waitForLoadBalancerIdle(timeoutMs);
+      }
+    }, timeoutMs);
   }
 
   /**
@@ -1012,9 +963,11 @@ public class YBClient implements AutoCloseable {
    * @return true iff the leader count is balanced within timeoutMs.
    */
   public boolean waitForAreLeadersOnPreferredOnlyCondition(final long timeoutMs) {
-    Condition areLeadersOnPreferredOnlyCondition =
-        new AreLeadersOnPreferredOnlyCondition();
-    return waitForCondition(areLeadersOnPreferredOnlyCondition, timeoutMs);
+    return waitForAsync(new AsyncWait() {
+      public Deferred<Boolean> start(long timeoutMs) {
+        return asyncClient.waitForAreLeadersOnPreferredOnly(timeoutMs);
+      }
+    }, timeoutMs);
   }
 
   /**
@@ -1035,9 +988,12 @@ public class YBClient implements AutoCloseable {
   }
 
   public boolean waitForMasterHasUniverseKeyInMemory(
-          final long timeoutMs, String universeKeyId, HostAndPort hp) {
-    Condition universeKeyCondition = new MasterHasUniverseKeyInMemoryCondition(universeKeyId, hp);
-    return waitForCondition(universeKeyCondition, timeoutMs);
+          final long timeoutMs, final String universeKeyId, final HostAndPort hp) {
+    return waitForAsync(new AsyncWait() {
+      public Deferred<Boolean> start(long timeoutMs) {
+        return asyncClient.waitForMasterHasUniverseKeyInMemory(timeoutMs, universeKeyId, hp);
+      }
+    }, timeoutMs);
   }
 
   /**
@@ -1238,6 +1194,14 @@ public class YBClient implements AutoCloseable {
     return asyncClient.getDefaultAdminOperationTimeoutMs();
   }
 
+  /**
+   * Get a snapshot of the RPC metrics of this client.
+   * @see AsyncYBClient#getRpcStats()
+   */
+  public RpcStatsSnapshot getRpcStats() {
+    return asyncClient.getRpcStats();
+  }
+
   /**
    * Builder class to use in order to connect to YB.
    * All the parameters beyond those in the constructors are optional.
@@ -1360,6 +1324,16 @@ public class YBClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Set the number of connections to open to each tablet server and master.
+     * Optional.
+     * If not provided, 1 is used.
+     */
+    public YBClientBuilder connectionsPerServer(int connectionsPerServer) {
+      clientBuilder.connectionsPerServer(connectionsPerServer);
+      return this;
+    }
+
     /**
      * Creates a new client that connects to the masters.
      * Doesn't block and won't throw an exception if the masters don't exist.
@@ -115,6 +115,13 @@ public abstract class YRpc<R> {
   // Maximum number of attempts to try the RPC. Default 100 times.
   byte maxAttempts = 100;
 
+  // When the current attempt of this RPC was handed to its connection, for latency metrics.
+  long sendTimeNanos;  // package-private for TabletClient only.
+
+  // How long we slept before the last retry of this RPC, 0 if it wasn't retried yet. Used by the
+  // client's RetryPolicy to grow the backoff.
+  long lastSleepTimeMs;  // package-private for AsyncYBClient only.
+
   // Whether or not retries for this RPC should always go to the same server. This is required in
   // some cases where we do not want the RPC retries to hit a different server serving the same
   // tablet.
@@ -176,6 +183,7 @@ public abstract class YRpc<R> {
     }
     deferred = null;
     attempt = 0;
+    lastSleepTimeMs = 0;
     deadlineTracker.reset();
     d.callback(result);
   }
@@ -228,6 +236,24 @@ public abstract class YRpc<R> {
     this.retrySameServer = retrySameServer;
   }
 
+  /**
+   * Whether a retry of this RPC can go straight to another replica of its tablet, without
+   * sleeping, when the server it was sent to fails with a retryable error. Only RPCs that any
+   * replica can serve (or forward to the leader itself) should return true.
+   */
+  boolean isFailoverSafe() {
+    return false;
+  }
+
+  /**
+   * Whether this RPC can be served by any replica of its tablet, in which case it is sent to the
+   * replica closest to the client as given by the client's {@link ReplicaSelectionPolicy},
+   * rather than to the leader. Only reads that accept data as of a follower should return true.
+   */
+  boolean isFollowerReadAllowed() {
+    return false;
+  }
+
   void setTimeoutMillis(long timeout) {
     deadlineTracker.setDeadline(timeout);
   }
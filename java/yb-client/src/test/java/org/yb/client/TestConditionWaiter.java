@@ -0,0 +1,118 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestConditionWaiter {
+
+  private static final RetryPolicy FAST_BACKOFF = new ExponentialBackoffRetryPolicy(10, 20);
+
+  private AsyncYBClient client;
+
+  @Before
+  public void setUp() {
+    // The conditions below don't send any RPC, the client is only used for its timer.
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100").build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  @Test(timeout = 10000)
+  public void testConditionHolds() throws Exception {
+    final AtomicInteger numChecks = new AtomicInteger();
+    Deferred<Boolean> d = client.waitForCondition(new AsyncYBClient.AsyncCondition() {
+      public Deferred<Boolean> get() {
+        return Deferred.fromResult(numChecks.incrementAndGet() == 3);
+      }
+    }, 5000, FAST_BACKOFF);
+    assertTrue(d.join());
+    assertEquals(3, numChecks.get());
+  }
+
+  @Test(timeout = 10000)
+  public void testConditionTimesOut() throws Exception {
+    long start = System.currentTimeMillis();
+    Deferred<Boolean> d = client.waitForCondition(new AsyncYBClient.AsyncCondition() {
+      public Deferred<Boolean> get() {
+        return Deferred.fromResult(false);
+      }
+    }, 200, FAST_BACKOFF);
+    assertFalse(d.join());
+    assertTrue(System.currentTimeMillis() - start >= 200);
+  }
+
+  @Test(timeout = 10000)
+  public void testErrorsAreRetried() throws Exception {
+    final AtomicInteger numChecks = new AtomicInteger();
+    Deferred<Boolean> d = client.waitForCondition(new AsyncYBClient.AsyncCondition() {
+      public Deferred<Boolean> get() throws Exception {
+        int check = numChecks.incrementAndGet();
+        if (check == 1) {
+          throw new IllegalStateException("Could not create a client");
+        }
+        if (check == 2) {
+          return Deferred.fromError(new NonRecoverableException("Simulated error"));
+        }
+        return Deferred.fromResult(true);
+      }
+    }, 5000, FAST_BACKOFF);
+    assertTrue(d.join());
+    assertEquals(3, numChecks.get());
+  }
+
+  @Test(timeout = 10000)
+  public void testHungCheckTimesOut() throws Exception {
+    long start = System.currentTimeMillis();
+    Deferred<Boolean> d = client.waitForCondition(new AsyncYBClient.AsyncCondition() {
+      public Deferred<Boolean> get() {
+        // Never called back.
+        return new Deferred<Boolean>();
+      }
+    }, 200, FAST_BACKOFF);
+    assertFalse(d.join());
+    assertTrue(System.currentTimeMillis() - start >= 200);
+  }
+
+  @Test(timeout = 10000)
+  public void testInjectedError() throws Exception {
+    final AtomicInteger numChecks = new AtomicInteger();
+    long start = System.currentTimeMillis();
+    client.injectWaitError();
+    Deferred<Boolean> d = client.waitForCondition(new AsyncYBClient.AsyncCondition() {
+      public Deferred<Boolean> get() {
+        numChecks.incrementAndGet();
+        return Deferred.fromResult(true);
+      }
+    }, 5000, new ExponentialBackoffRetryPolicy(200, 200));
+    assertTrue(d.join());
+    // The first check failed without checking the condition, and was retried after the backoff.
+    assertEquals(1, numChecks.get());
+    assertTrue(System.currentTimeMillis() - start >= 200);
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.google.common.net.HostAndPort;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestConnectionPools {
+
+  private AsyncYBClient client;
+  // No server listens on this port, every connection to it is refused and then removed.
+  private HostAndPort deadServer;
+
+  @Before
+  public void setUp() throws Exception {
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100")
+        .connectionsPerServer(4)
+        .build();
+    deadServer = HostAndPort.fromParts("127.0.0.1", TestUtils.findFreePort("127.0.0.1"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  private void waitForAllClientsRemoved() throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!client.getTableClients().isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(client.getTableClients().isEmpty());
+  }
+
+  @Test(timeout = 30000)
+  public void testPoolIsDroppedWithItsLastClient() throws Exception {
+    TabletClient tserver = client.newSimpleClient(deadServer);
+    assertNotNull(tserver);
+    waitForAllClientsRemoved();
+    assertEquals(0, client.getNumConnectionPools());
+
+    // The next connection to the server gets a new pool.
+    assertNotNull(client.newSimpleClient(deadServer));
+    assertEquals(1, client.getNumConnectionPools());
+    waitForAllClientsRemoved();
+    assertEquals(0, client.getNumConnectionPools());
+  }
+
+  @Test(timeout = 60000)
+  public void testConcurrentAddAndRemove() throws Exception {
+    final int numThreads = 8;
+    final int numClientsPerThread = 200;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Throwable> errors = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < numThreads; i++) {
+      Thread thread = new Thread() {
+        public void run() {
+          try {
+            start.await();
+            for (int j = 0; j < numClientsPerThread; j++) {
+              // Clients of the pool keep dying while new ones are added to it.
+              assertNotNull(client.newSimpleClient(deadServer));
+            }
+          } catch (Throwable t) {
+            synchronized (errors) {
+              errors.add(t);
+            }
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(errors.toString(), errors.isEmpty());
+
+    // Every client died and was removed, and so was the pool.
+    waitForAllClientsRemoved();
+    assertEquals(0, client.getNumConnectionPools());
+  }
+}
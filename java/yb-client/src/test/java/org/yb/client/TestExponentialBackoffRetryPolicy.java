@@ -0,0 +1,56 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestExponentialBackoffRetryPolicy {
+
+  @Test
+  public void testSleepTimeBounds() {
+    RetryPolicy policy = new ExponentialBackoffRetryPolicy(20, 2000);
+    for (int i = 0; i < 1000; i++) {
+      long lastSleepTimeMs = 0;
+      for (int attempt = 1; attempt < 20; attempt++) {
+        long sleepTimeMs = policy.getSleepTimeMs(attempt, lastSleepTimeMs);
+        assertTrue(sleepTimeMs >= 20);
+        assertTrue(sleepTimeMs <= 2000);
+        assertTrue(sleepTimeMs < Math.max(lastSleepTimeMs, 20) * 3);
+        lastSleepTimeMs = sleepTimeMs;
+      }
+    }
+  }
+
+  @Test
+  public void testSleepTimeGrows() {
+    RetryPolicy policy = new ExponentialBackoffRetryPolicy(20, 2000);
+    // The expected sleep roughly doubles every attempt until it hits the cap, after which it
+    // averages about half of the cap.
+    long total = 0;
+    for (int i = 0; i < 100; i++) {
+      long lastSleepTimeMs = 0;
+      for (int attempt = 1; attempt < 30; attempt++) {
+        lastSleepTimeMs = policy.getSleepTimeMs(attempt, lastSleepTimeMs);
+      }
+      total += lastSleepTimeMs;
+    }
+    assertTrue(total / 100 > 500);
+  }
+}
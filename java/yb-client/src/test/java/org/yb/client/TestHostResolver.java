@@ -0,0 +1,72 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestHostResolver {
+
+  @Test
+  public void testResolveIp() {
+    HostResolver resolver = new HostResolver(60000);
+    try {
+      assertEquals("127.0.0.1", resolver.resolve("127.0.0.1"));
+      // The second lookup is served from the cache.
+      assertEquals("127.0.0.1", resolver.resolve("127.0.0.1"));
+    } finally {
+      resolver.close();
+    }
+  }
+
+  @Test
+  public void testCacheDisabled() {
+    HostResolver resolver = new HostResolver(0);
+    try {
+      assertEquals("127.0.0.1", resolver.resolve("127.0.0.1"));
+    } finally {
+      resolver.close();
+    }
+  }
+
+  @Test
+  public void testUnknownHost() {
+    HostResolver resolver = new HostResolver(60000);
+    try {
+      // Reserved top-level domain, guaranteed not to resolve.
+      assertNull(resolver.resolve("host.invalid"));
+      assertNull(resolver.resolve("host.invalid"));
+    } finally {
+      resolver.close();
+    }
+  }
+
+  @Test
+  public void testExpiredAddressIsRefreshed() throws Exception {
+    HostResolver resolver = new HostResolver(10);
+    try {
+      assertEquals("127.0.0.1", resolver.resolve("127.0.0.1"));
+      Thread.sleep(50);
+      // The expired address is still returned while the host is resolved again.
+      assertEquals("127.0.0.1", resolver.resolve("127.0.0.1"));
+    } finally {
+      resolver.close();
+    }
+  }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestLatencyHistogram {
+
+  @Test
+  public void testBuckets() {
+    long[] values = { 0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE };
+    for (long value : values) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+      if (index > 0) {
+        assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+      }
+    }
+    // Small values are exact.
+    assertEquals(7, LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(7)));
+  }
+
+  @Test
+  public void testSnapshot() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    RpcStatsSnapshot.Latency empty = histogram.snapshot();
+    assertEquals(0, empty.getCount());
+    assertEquals(0, empty.getP99Micros());
+
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    RpcStatsSnapshot.Latency latency = histogram.snapshot();
+    assertEquals(1000, latency.getCount());
+    assertEquals(500, latency.getMeanMicros());
+    assertEquals(1000, latency.getMaxMicros());
+    // Percentiles are within one sub-bucket, i.e. 1/8, of the exact value.
+    assertTrue(latency.getP50Micros() >= 500 && latency.getP50Micros() <= 500 * 9 / 8);
+    assertTrue(latency.getP99Micros() >= 990 && latency.getP99Micros() <= 1000);
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.net.HostAndPort;
+import com.google.protobuf.ByteString;
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.WireProtocol;
+import org.yb.YBTestRunner;
+import org.yb.consensus.Metadata;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestLeaderMasterHint {
+
+  private static final long JOIN_TIMEOUT_MS = 5000;
+
+  private static final HostAndPort MASTER_A = HostAndPort.fromParts("127.0.0.1", 7100);
+  private static final HostAndPort MASTER_B = HostAndPort.fromParts("127.0.0.1", 7101);
+  private static final HostAndPort MASTER_C = HostAndPort.fromParts("127.0.0.1", 7102);
+
+  private AsyncYBClient client;
+  private FakeMasters masters;
+
+  /**
+   * Answers the GetMasterRegistration calls of the master lookups in place of the masters.
+   */
+  private static final class FakeMasters implements AsyncYBClient.MasterRegistrationSource {
+    final List<HostAndPort> asked = Collections.synchronizedList(new ArrayList<HostAndPort>());
+    volatile HostAndPort leader;
+    final Set<HostAndPort> down = Collections.synchronizedSet(new HashSet<HostAndPort>());
+    final Set<HostAndPort> hung = Collections.synchronizedSet(new HashSet<HostAndPort>());
+
+    public Deferred<GetMasterRegistrationResponse> get(HostAndPort hostAndPort) {
+      asked.add(hostAndPort);
+      if (hung.contains(hostAndPort)) {
+        // Never answers.
+        return new Deferred<GetMasterRegistrationResponse>();
+      }
+      if (down.contains(hostAndPort)) {
+        return Deferred.fromError(new Exception("Connection refused: " + hostAndPort));
+      }
+      Metadata.RaftPeerPB.Role role = hostAndPort.equals(leader) ?
+          Metadata.RaftPeerPB.Role.LEADER : Metadata.RaftPeerPB.Role.FOLLOWER;
+      WireProtocol.NodeInstancePB instance = WireProtocol.NodeInstancePB.newBuilder()
+          .setPermanentUuid(ByteString.copyFromUtf8(hostAndPort.toString()))
+          .setInstanceSeqno(0)
+          .build();
+      return Deferred.fromResult(new GetMasterRegistrationResponse(
+          0, hostAndPort.toString(), role, null, instance));
+    }
+  }
+
+  @Before
+  public void setUp() {
+    client = new AsyncYBClient.AsyncYBClientBuilder(
+        MASTER_A + "," + MASTER_B + "," + MASTER_C).build();
+    masters = new FakeMasters();
+    client.setMasterRegistrationSource(masters);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  private void findLeader(HostAndPort expectedLeader) throws Exception {
+    client.getMasterTableLocationsPB().join(JOIN_TIMEOUT_MS);
+    assertEquals(expectedLeader, client.getLeaderMasterHint());
+  }
+
+  /** Finds B as the leader, which is then the hint of the next lookups. */
+  private void findLeaderB() throws Exception {
+    masters.leader = MASTER_B;
+    findLeader(MASTER_B);
+    masters.asked.clear();
+  }
+
+  @Test(timeout = 30000)
+  public void testAllMastersAskedWithoutHint() throws Exception {
+    assertNull(client.getLeaderMasterHint());
+    masters.leader = MASTER_B;
+    findLeader(MASTER_B);
+    assertEquals(new HashSet<>(Arrays.asList(MASTER_A, MASTER_B, MASTER_C)),
+                 new HashSet<>(masters.asked));
+  }
+
+  @Test(timeout = 30000)
+  public void testOnlyHintAskedWhenStillLeader() throws Exception {
+    findLeaderB();
+    findLeader(MASTER_B);
+    // Leave the time to ask the other masters, which isn't needed.
+    Thread.sleep(2 * AsyncYBClient.LEADER_MASTER_HINT_WAIT_MS);
+    assertEquals(Arrays.asList(MASTER_B), masters.asked);
+  }
+
+  @Test(timeout = 30000)
+  public void testStaleHint() throws Exception {
+    findLeaderB();
+    // B answers that it's a follower now, the others are asked right away.
+    masters.leader = MASTER_C;
+    long start = System.currentTimeMillis();
+    findLeader(MASTER_C);
+    assertTrue(System.currentTimeMillis() - start < AsyncYBClient.LEADER_MASTER_HINT_WAIT_MS);
+    assertEquals(MASTER_B, masters.asked.get(0));
+    assertTrue(masters.asked.contains(MASTER_C));
+  }
+
+  @Test(timeout = 30000)
+  public void testDeadHint() throws Exception {
+    findLeaderB();
+    masters.down.add(MASTER_B);
+    masters.leader = MASTER_A;
+    findLeader(MASTER_A);
+    assertEquals(MASTER_B, masters.asked.get(0));
+    assertTrue(masters.asked.contains(MASTER_A));
+  }
+
+  @Test(timeout = 30000)
+  public void testHungHint() throws Exception {
+    findLeaderB();
+    // B doesn't answer at all, the others are asked once the hint had its time.
+    masters.hung.add(MASTER_B);
+    masters.leader = MASTER_C;
+    long start = System.currentTimeMillis();
+    findLeader(MASTER_C);
+    assertTrue(System.currentTimeMillis() - start >= AsyncYBClient.LEADER_MASTER_HINT_WAIT_MS);
+    assertEquals(MASTER_B, masters.asked.get(0));
+    assertTrue(masters.asked.contains(MASTER_C));
+  }
+
+  @Test(timeout = 30000)
+  public void testNoLeader() throws Exception {
+    findLeaderB();
+    masters.leader = null;
+    try {
+      client.getMasterTableLocationsPB().join(JOIN_TIMEOUT_MS);
+      fail("No master is the leader");
+    } catch (NoLeaderMasterFoundException e) {
+      // Expected.
+    }
+    assertNull(client.getLeaderMasterHint());
+    assertEquals(new HashSet<>(Arrays.asList(MASTER_A, MASTER_B, MASTER_C)),
+                 new HashSet<>(masters.asked));
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import com.google.protobuf.ByteString;
+import com.stumbleupon.async.Deferred;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.Common;
+import org.yb.YBTestRunner;
+import org.yb.master.Master;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestMasterLookups {
+
+  private static final long JOIN_TIMEOUT_MS = 10000;
+
+  private AsyncYBClient client;
+  private YBTable table;
+
+  @Before
+  public void setUp() throws Exception {
+    // No master listens on this port, so every lookup fails once its timeout expires.
+    int port = TestUtils.findFreePort("127.0.0.1");
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:" + port)
+        .defaultAdminOperationTimeoutMs(1000)
+        .build();
+    table = new YBTable(client, "table", "table_id", null, null);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  private static byte[] key(String key) {
+    return key.getBytes();
+  }
+
+  private static void assertLookupFails(Deferred<Master.GetTableLocationsResponsePB> d)
+      throws Exception {
+    try {
+      d.join(JOIN_TIMEOUT_MS);
+      fail("The lookup should have failed");
+    } catch (YBException e) {
+      // Expected, the master is down.
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testFailedLookupWakesWaiters() throws Exception {
+    Deferred<Master.GetTableLocationsResponsePB> first = client.locateTablet(table, key("a"));
+    Deferred<Master.GetTableLocationsResponsePB> second = client.locateTablet(table, key("a"));
+    assertEquals(1, client.getNumInflightLookups(table.getTableId()));
+    assertLookupFails(first);
+    assertLookupFails(second);
+    assertEquals(0, client.getNumInflightLookups(table.getTableId()));
+
+    // The failed lookup is no longer in flight, the next miss looks the range up again.
+    Deferred<Master.GetTableLocationsResponsePB> third = client.locateTablet(table, key("a"));
+    assertEquals(1, client.getNumInflightLookups(table.getTableId()));
+    assertLookupFails(third);
+  }
+
+  @Test(timeout = 30000)
+  public void testLookupsOfOtherRangesAreNotCoalesced() throws Exception {
+    Deferred<Master.GetTableLocationsResponsePB> first = client.locateTablet(table, key("a"));
+    Deferred<Master.GetTableLocationsResponsePB> second = client.locateTablet(table, key("z"));
+    assertEquals(2, client.getNumInflightLookups(table.getTableId()));
+    assertLookupFails(first);
+    assertLookupFails(second);
+  }
+
+  @Test(timeout = 30000)
+  public void testLookupsOfTheSameTabletAreCoalesced() throws Exception {
+    // A tablet without any replica, as if its tablet servers were gone.
+    Master.TabletLocationsPB tabletPb = Master.TabletLocationsPB.newBuilder()
+        .setTabletId(ByteString.copyFromUtf8("tablet"))
+        .setStale(false)
+        .setPartition(Common.PartitionPB.newBuilder()
+            .setPartitionKeyStart(ByteString.copyFromUtf8("a"))
+            .setPartitionKeyEnd(ByteString.copyFromUtf8("m")))
+        .build();
+    client.discoverTablets(table, Master.GetTableLocationsResponsePB.newBuilder()
+        .addTabletLocations(tabletPb)
+        .build());
+
+    Deferred<Master.GetTableLocationsResponsePB> first = client.locateTablet(table, key("b"));
+    Deferred<Master.GetTableLocationsResponsePB> second = client.locateTablet(table, key("c"));
+    Deferred<Master.GetTableLocationsResponsePB> other = client.locateTablet(table, key("x"));
+    // "b" and "c" wait on the same lookup, "x" isn't in the cached tablet.
+    assertEquals(2, client.getNumInflightLookups(table.getTableId()));
+    assertLookupFails(first);
+    assertLookupFails(second);
+    assertLookupFails(other);
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import org.yb.Common;
+import org.yb.YBTestRunner;
+import org.yb.master.Master;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestPlacementAwareReplicaSelectionPolicy {
+
+  private static Common.CloudInfoPB placement(String cloud, String region, String zone) {
+    return Common.CloudInfoPB.newBuilder()
+        .setPlacementCloud(cloud)
+        .setPlacementRegion(region)
+        .setPlacementZone(zone)
+        .build();
+  }
+
+  private static Common.HostPortPB hostPort(String host) {
+    return Common.HostPortPB.newBuilder().setHost(host).setPort(9100).build();
+  }
+
+  private static Master.TSInfoPB tsInfo(Common.CloudInfoPB placement, boolean hasBroadcast) {
+    Master.TSInfoPB.Builder builder = Master.TSInfoPB.newBuilder()
+        .setPermanentUuid(ByteString.copyFromUtf8("ts"))
+        .addPrivateRpcAddresses(hostPort("10.0.0.1"))
+        .setCloudInfo(placement);
+    if (hasBroadcast) {
+      builder.addBroadcastAddresses(hostPort("34.0.0.1"));
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testDistance() {
+    ReplicaSelectionPolicy policy =
+        new PlacementAwareReplicaSelectionPolicy("aws", "us-west-2", "us-west-2a");
+    assertEquals(PlacementAwareReplicaSelectionPolicy.SAME_ZONE,
+                 policy.distance(placement("aws", "us-west-2", "us-west-2a")));
+    assertEquals(PlacementAwareReplicaSelectionPolicy.SAME_REGION,
+                 policy.distance(placement("aws", "us-west-2", "us-west-2b")));
+    assertEquals(PlacementAwareReplicaSelectionPolicy.SAME_CLOUD,
+                 policy.distance(placement("aws", "us-east-1", "us-east-1a")));
+    assertEquals(PlacementAwareReplicaSelectionPolicy.REMOTE,
+                 policy.distance(placement("gcp", "us-west1", "us-west1-a")));
+    assertEquals(PlacementAwareReplicaSelectionPolicy.REMOTE,
+                 policy.distance(Common.CloudInfoPB.getDefaultInstance()));
+  }
+
+  @Test
+  public void testAddressSelection() {
+    ReplicaSelectionPolicy policy =
+        new PlacementAwareReplicaSelectionPolicy("aws", "us-west-2", "us-west-2a");
+    // Same region: private address.
+    assertEquals("10.0.0.1",
+        policy.selectAddress(tsInfo(placement("aws", "us-west-2", "us-west-2b"), true)).getHost());
+    // Other region: broadcast address, unless there is none.
+    assertEquals("34.0.0.1",
+        policy.selectAddress(tsInfo(placement("aws", "us-east-1", "us-east-1a"), true)).getHost());
+    assertEquals("10.0.0.1",
+        policy.selectAddress(tsInfo(placement("aws", "us-east-1", "us-east-1a"), false)).getHost());
+  }
+
+  @Test
+  public void testNoClientPlacement() {
+    ReplicaSelectionPolicy policy =
+        new PlacementAwareReplicaSelectionPolicy((Common.CloudInfoPB) null);
+    Common.CloudInfoPB remote = placement("gcp", "us-west1", "us-west1-a");
+    assertEquals(0, policy.distance(remote));
+    assertEquals("34.0.0.1", policy.selectAddress(tsInfo(remote, true)).getHost());
+    assertEquals("10.0.0.1", policy.selectAddress(tsInfo(remote, false)).getHost());
+  }
+}
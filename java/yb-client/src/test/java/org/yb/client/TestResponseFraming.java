@@ -0,0 +1,185 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.protobuf.CodedOutputStream;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.YBTestRunner;
+import org.yb.rpc.RpcHeader;
+import org.yb.util.Slice;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestResponseFraming {
+
+  private AsyncYBClient client;
+
+  @Before
+  public void setUp() {
+    // The responses below are decoded without any connection, the client is only used to create
+    // the TabletClient.
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100").build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  /**
+   * A TabletClient recording the frames it is handed instead of dispatching them to RPCs.
+   */
+  private static final class FrameRecorder extends TabletClient {
+    final List<CallResponse> responses = new ArrayList<>();
+    final List<byte[]> messages = new ArrayList<>();
+
+    FrameRecorder(AsyncYBClient client) {
+      super(client, "tserver");
+    }
+
+    @Override
+    void decodeFrame(ChannelBuffer buf) {
+      CallResponse response = new CallResponse(buf);
+      responses.add(response);
+      messages.add(response.getPBMessage().getBytes());
+    }
+  }
+
+  /**
+   * @return a response frame: its length, then the header and the message, each prefixed by
+   *         its length
+   */
+  private static byte[] frame(int callId, byte[] message) throws Exception {
+    RpcHeader.ResponseHeader header = RpcHeader.ResponseHeader.newBuilder()
+        .setCallId(callId)
+        .setIsError(false)
+        .build();
+    int headerSize = header.getSerializedSize();
+    int size = CodedOutputStream.computeUInt32SizeNoTag(headerSize) + headerSize +
+        CodedOutputStream.computeUInt32SizeNoTag(message.length) + message.length;
+    byte[] body = new byte[size];
+    CodedOutputStream out = CodedOutputStream.newInstance(body);
+    out.writeUInt32NoTag(headerSize);
+    header.writeTo(out);
+    out.writeUInt32NoTag(message.length);
+    out.writeRawBytes(message);
+    out.checkNoSpaceLeft();
+    ChannelBuffer buf = ChannelBuffers.buffer(4 + size);
+    buf.writeInt(size);
+    buf.writeBytes(body);
+    return buf.array();
+  }
+
+  private static byte[] concat(byte[]... arrays) {
+    int length = 0;
+    for (byte[] array : arrays) {
+      length += array.length;
+    }
+    byte[] result = new byte[length];
+    int offset = 0;
+    for (byte[] array : arrays) {
+      System.arraycopy(array, 0, result, offset, array.length);
+      offset += array.length;
+    }
+    return result;
+  }
+
+  @Test
+  public void testFrameSplitAcrossReads() throws Exception {
+    FrameRecorder recorder = new FrameRecorder(client);
+    DecoderEmbedder<Object> embedder = new DecoderEmbedder<Object>(recorder);
+    byte[] message = "a message spread over many reads".getBytes();
+    byte[] bytes = frame(1, message);
+
+    // One byte per read, the frame is only decoded once its last byte arrived.
+    for (int i = 0; i < bytes.length - 1; i++) {
+      embedder.offer(ChannelBuffers.wrappedBuffer(bytes, i, 1));
+      assertTrue(recorder.responses.isEmpty());
+    }
+    embedder.offer(ChannelBuffers.wrappedBuffer(bytes, bytes.length - 1, 1));
+    assertEquals(1, recorder.responses.size());
+    assertEquals(1, recorder.responses.get(0).getHeader().getCallId());
+    assertTrue(Arrays.equals(message, recorder.messages.get(0)));
+  }
+
+  @Test
+  public void testSeveralFramesInOneRead() throws Exception {
+    FrameRecorder recorder = new FrameRecorder(client);
+    DecoderEmbedder<Object> embedder = new DecoderEmbedder<Object>(recorder);
+    byte[] first = frame(1, "first".getBytes());
+    byte[] second = frame(2, "second".getBytes());
+    byte[] third = frame(3, "third".getBytes());
+    byte[] bytes = concat(first, second, third);
+
+    // The first two frames and the start of the third, then the rest of the third.
+    int split = first.length + second.length + 3;
+    embedder.offer(ChannelBuffers.wrappedBuffer(bytes, 0, split));
+    assertEquals(2, recorder.responses.size());
+    embedder.offer(ChannelBuffers.wrappedBuffer(bytes, split, bytes.length - split));
+    assertEquals(3, recorder.responses.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i + 1, recorder.responses.get(i).getHeader().getCallId());
+    }
+    assertTrue(Arrays.equals("second".getBytes(), recorder.messages.get(1)));
+    assertTrue(Arrays.equals("third".getBytes(), recorder.messages.get(2)));
+  }
+
+  @Test
+  public void testZeroCopyMessage() throws Exception {
+    byte[] message = "zero copy".getBytes();
+    // The frame doesn't start at the beginning of the array, like a slice of received bytes.
+    byte[] bytes = concat("garbage".getBytes(), frame(7, message));
+    ChannelBuffer buf = ChannelBuffers.wrappedBuffer(bytes).slice(7, bytes.length - 7);
+    assertTrue(buf.hasArray());
+
+    CallResponse response = new CallResponse(buf);
+    assertEquals(7, response.getHeader().getCallId());
+    Slice slice = response.getPBMessage();
+    // The message points into the received bytes rather than being copied out.
+    assertSame(bytes, slice.getRawArray());
+    assertTrue(Arrays.equals(message, slice.getBytes()));
+    assertFalse(buf.readable());
+  }
+
+  @Test
+  public void testCopiedMessage() throws Exception {
+    byte[] message = "copied".getBytes();
+    ChannelBuffer buf = ChannelBuffers.directBuffer(64);
+    buf.writeBytes(frame(8, message));
+    assertFalse(buf.hasArray());
+
+    CallResponse response = new CallResponse(buf);
+    assertEquals(8, response.getHeader().getCallId());
+    assertTrue(Arrays.equals(message, response.getPBMessage().getBytes()));
+    assertFalse(buf.readable());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testTruncatedFrame() throws Exception {
+    byte[] bytes = frame(9, "truncated".getBytes());
+    new CallResponse(ChannelBuffers.wrappedBuffer(bytes, 0, bytes.length - 1));
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import com.google.common.base.Ticker;
+import com.google.common.net.HostAndPort;
+import com.stumbleupon.async.Deferred;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yb.YBTestRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestRetryBudget {
+
+  @Test
+  public void testBudget() {
+    final AtomicLong timeToReturn = new AtomicLong();
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return timeToReturn.get();
+      }
+    };
+    RetryBudget budget = new RetryBudget(0.5, 1, ticker);
+
+    // Starts with ten seconds worth of the minimum rate.
+    for (int i = 0; i < 10; i++) {
+      assertTrue(budget.tryWithdraw());
+    }
+    assertFalse(budget.tryWithdraw());
+
+    // Two requests pay for one retry.
+    budget.deposit();
+    assertFalse(budget.tryWithdraw());
+    budget.deposit();
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+
+    // The minimum rate refills the budget over time.
+    timeToReturn.set(2000L * 1000000);
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+
+    // But never past its capacity.
+    timeToReturn.set(60000L * 1000000);
+    for (int i = 0; i < 100; i++) {
+      budget.deposit();
+    }
+    for (int i = 0; i < 10; i++) {
+      assertTrue(budget.tryWithdraw());
+    }
+    assertFalse(budget.tryWithdraw());
+  }
+
+  @Test(timeout = 30000)
+  public void testMasterRpcsAreNotCapped() throws Exception {
+    // A budget of a single retry, which the master RPC uses up right away.
+    AsyncYBClient client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100,127.0.0.1:7101")
+        .retryBudget(0.5, 0)
+        .defaultAdminOperationTimeoutMs(2000)
+        .build();
+    final AtomicInteger numAsked = new AtomicInteger();
+    // No master answers, as during an election, so the RPC keeps looking for the leader.
+    client.setMasterRegistrationSource(new AsyncYBClient.MasterRegistrationSource() {
+      public Deferred<GetMasterRegistrationResponse> get(HostAndPort hostAndPort) {
+        numAsked.incrementAndGet();
+        return Deferred.fromError(new Exception("Connection refused: " + hostAndPort));
+      }
+    });
+    try {
+      client.getTablesList().join(10000);
+      fail("No master is the leader");
+    } catch (Exception e) {
+      // The RPC retried until its deadline.
+      assertFalse(e.toString(), e.getMessage().contains("Retry budget exhausted"));
+    } finally {
+      client.close();
+    }
+    assertEquals(0, client.getRpcStats().getRetriesRejected());
+    assertTrue("Masters asked " + numAsked.get() + " times", numAsked.get() > 4);
+  }
+}
@@ -0,0 +1,180 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import static org.yb.AssertionWrappers.*;
+
+import java.util.Arrays;
+
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.yb.Common;
+import org.yb.YBTestRunner;
+import org.yb.master.Master;
+import org.yb.util.Slice;
+
+import org.junit.runner.RunWith;
+
+@RunWith(value=YBTestRunner.class)
+public class TestTabletLocationsCache {
+
+  private static final String TABLE_ID = "table";
+
+  private AsyncYBClient client;
+
+  @Before
+  public void setUp() {
+    // The tablets below have no replica, the client is only used to create them.
+    client = new AsyncYBClient.AsyncYBClientBuilder("127.0.0.1:7100").build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+  }
+
+  private AsyncYBClient.RemoteTablet newTablet(String tableId, String tabletId, String start,
+                                               String end) {
+    Master.TabletLocationsPB tabletPb = Master.TabletLocationsPB.newBuilder()
+        .setTabletId(ByteString.copyFromUtf8(tabletId))
+        .setStale(false)
+        .setPartition(Common.PartitionPB.newBuilder()
+            .setPartitionKeyStart(ByteString.copyFromUtf8(start))
+            .setPartitionKeyEnd(ByteString.copyFromUtf8(end)))
+        .build();
+    return client.createTabletFromPb(tableId, tabletPb);
+  }
+
+  private static byte[] key(String key) {
+    return key.getBytes();
+  }
+
+  @Test
+  public void testLookupByPartitionKey() {
+    TabletLocationsCache cache = new TabletLocationsCache(1 << 20, 0);
+    AsyncYBClient.RemoteTablet first = newTablet(TABLE_ID, "t1", "", "c");
+    AsyncYBClient.RemoteTablet second = newTablet(TABLE_ID, "t2", "c", "f");
+    AsyncYBClient.RemoteTablet last = newTablet(TABLE_ID, "t3", "f", "");
+    cache.putAll(TABLE_ID, Arrays.asList(last, first, second));
+
+    assertSame(first, cache.get(TABLE_ID, key("")));
+    assertSame(first, cache.get(TABLE_ID, key("b")));
+    assertSame(second, cache.get(TABLE_ID, key("c")));
+    assertSame(second, cache.get(TABLE_ID, key("e")));
+    assertSame(last, cache.get(TABLE_ID, key("z")));
+    assertSame(first, cache.getFirst(TABLE_ID));
+    assertSame(second, cache.get(TABLE_ID, new Slice(key("t2")), key("c")));
+    assertNull(cache.get(TABLE_ID, new Slice(key("t1")), key("c")));
+    assertNull(cache.get("other table", key("b")));
+  }
+
+  @Test
+  public void testKeyAfterLastCachedTablet() {
+    TabletLocationsCache cache = new TabletLocationsCache(1 << 20, 0);
+    cache.putAll(TABLE_ID, Arrays.asList(newTablet(TABLE_ID, "t1", "", "c")));
+    // The tablet serving this key wasn't looked up yet.
+    assertNull(cache.get(TABLE_ID, key("d")));
+  }
+
+  @Test
+  public void testSplitTabletsReplaceParent() {
+    TabletLocationsCache cache = new TabletLocationsCache(1 << 20, 0);
+    AsyncYBClient.RemoteTablet parent = newTablet(TABLE_ID, "parent", "c", "");
+    AsyncYBClient.RemoteTablet other = newTablet(TABLE_ID, "other", "", "c");
+    cache.putAll(TABLE_ID, Arrays.asList(other, parent));
+
+    AsyncYBClient.RemoteTablet child = newTablet(TABLE_ID, "child", "m", "");
+    cache.putAll(TABLE_ID, Arrays.asList(child));
+
+    // The parent is gone, the key range of the other child isn't cached until it's looked up.
+    assertSame(child, cache.get(TABLE_ID, key("n")));
+    assertNull(cache.get(TABLE_ID, key("d")));
+    assertSame(other, cache.get(TABLE_ID, key("a")));
+    assertEquals(2, cache.getNumTablets());
+  }
+
+  @Test
+  public void testInvalidate() {
+    TabletLocationsCache cache = new TabletLocationsCache(1 << 20, 0);
+    cache.putAll(TABLE_ID, Arrays.asList(newTablet(TABLE_ID, "t1", "", "")));
+    cache.invalidate(TABLE_ID);
+    assertNull(cache.get(TABLE_ID, key("a")));
+    assertEquals(0, cache.getNumTables());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedTablesAreEvicted() {
+    int tabletBytes = TabletLocationsCache.TABLET_OVERHEAD_BYTES + "t0".length();
+    TabletLocationsCache cache = new TabletLocationsCache(3 * tabletBytes, 0);
+    for (int i = 0; i < 3; i++) {
+      cache.putAll("table" + i, Arrays.asList(newTablet("table" + i, "t" + i, "", "")));
+    }
+    assertEquals(3 * tabletBytes, cache.getEstimatedBytes());
+
+    // Use the first table, the second one is now the least recently used.
+    assertNotNull(cache.get("table0", key("a")));
+    cache.putAll("table3", Arrays.asList(newTablet("table3", "t3", "", "")));
+    cache.cleanUp();
+
+    assertEquals(3, cache.getNumTables());
+    assertTrue(cache.getEstimatedBytes() <= 3 * tabletBytes);
+    assertNotNull(cache.get("table0", key("a")));
+    assertNull(cache.get("table1", key("a")));
+    assertNotNull(cache.get("table3", key("a")));
+  }
+
+  @Test
+  public void testTableBiggerThanTheCacheIsCached() {
+    int tabletBytes = TabletLocationsCache.TABLET_OVERHEAD_BYTES + "t0".length();
+    TabletLocationsCache cache = new TabletLocationsCache(2 * tabletBytes, 0);
+    cache.putAll("small", Arrays.asList(newTablet("small", "t0", "", "")));
+    cache.putAll(TABLE_ID, Arrays.asList(newTablet(TABLE_ID, "t1", "", "c"),
+                                         newTablet(TABLE_ID, "t2", "c", "f"),
+                                         newTablet(TABLE_ID, "t3", "f", "")));
+    cache.cleanUp();
+
+    // The big table made room for itself.
+    assertEquals(1, cache.getNumTables());
+    assertNull(cache.get("small", key("a")));
+    assertNotNull(cache.get(TABLE_ID, key("a")));
+    assertNotNull(cache.get(TABLE_ID, key("z")));
+  }
+
+  @Test
+  public void testUnusedTablesExpire() throws Exception {
+    TabletLocationsCache cache = new TabletLocationsCache(1 << 20, 50);
+    cache.putAll(TABLE_ID, Arrays.asList(newTablet(TABLE_ID, "t1", "", "")));
+    Thread.sleep(100);
+    assertNull(cache.get(TABLE_ID, key("a")));
+  }
+
+  @Test
+  public void testReplicasOfDroppedTabletsAreForgotten() {
+    TabletLocationsCache cache = new TabletLocationsCache(1 << 20, 0);
+    TabletClient tserver = new TabletClient(client, "tserver");
+    cache.addClient(tserver);
+    AsyncYBClient.RemoteTablet tablet = newTablet(TABLE_ID, "t1", "", "");
+    assertTrue(cache.addReplica(tserver, tablet));
+    assertEquals(1, cache.getNumClientTablets(tserver));
+
+    cache.removeReplica(tserver, tablet);
+    assertEquals(0, cache.getNumClientTablets(tserver));
+
+    assertEquals(0, cache.removeClient(tserver).length);
+    // A tablet can't be added to a connection that is gone.
+    assertFalse(cache.addReplica(tserver, tablet));
+  }
+}
@@ -2,8 +2,10 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import io.ebean.Ebean;
@@ -14,11 +16,13 @@ import com.yugabyte.yw.cloud.AWSInitializer;
 import com.yugabyte.yw.common.ConfigHelper;
 import com.yugabyte.yw.common.CustomerTaskManager;
 import com.yugabyte.yw.common.ReleaseManager;
+import com.yugabyte.yw.common.SwamperHelper;
 import com.yugabyte.yw.common.YamlWrapper;
 import com.yugabyte.yw.models.Customer;
 import com.yugabyte.yw.models.InstanceType;
 import com.yugabyte.yw.models.MetricConfig;
 import com.yugabyte.yw.models.Provider;
+import com.yugabyte.yw.models.Universe;
 
 import play.Application;
 import play.Configuration;
@@ -41,7 +45,8 @@ public class AppInit {
   @Inject
   public AppInit(Environment environment, Application application,
                  ConfigHelper configHelper, ReleaseManager releaseManager,
-                 AWSInitializer awsInitializer, CustomerTaskManager taskManager, YamlWrapper yaml) {
+                 AWSInitializer awsInitializer, CustomerTaskManager taskManager, YamlWrapper yaml,
+                 SwamperHelper swamperHelper) {
     Logger.info("Yugaware Application has started");
     Configuration appConfig = application.configuration();
     String mode = appConfig.getString("yb.mode", "PLATFORM");
@@ -119,6 +124,17 @@ public class AppInit {
       // Fail incomplete tasks
       taskManager.failAllPendingTasks();
 
+      // Bring the prometheus targets files up to date, only the outdated ones get rewritten.
+      Set<UUID> universeUUIDs = new HashSet<>();
+      for (Universe universe : Universe.getAllUuids()) {
+        universeUUIDs.add(universe.universeUUID);
+      }
+      try {
+        swamperHelper.writeUniverseTargetJson(universeUUIDs);
+      } catch (RuntimeException e) {
+        Logger.error("Failed to update the prometheus targets files", e);
+      }
+
       Logger.info("AppInit completed");
    }
   }
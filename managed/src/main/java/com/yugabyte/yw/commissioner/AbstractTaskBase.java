@@ -5,11 +5,6 @@ package com.yugabyte.yw.commissioner;
 import java.io.IOException;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yugabyte.yw.common.ShellProcessHandler;
@@ -17,7 +12,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.yugabyte.yw.common.Util;
 import com.yugabyte.yw.forms.ITaskParams;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
@@ -34,14 +28,10 @@ public abstract class AbstractTaskBase implements ITask {
   // Number of concurrent tasks to execute at a time.
   private static final int TASK_THREADS = 10;
 
-  // The maximum time that excess idle threads will wait for new tasks before terminating.
-  // The unit is specified in the API (and is seconds).
-  private static final long THREAD_ALIVE_TIME = 60L;
-
   // The params for this task.
   protected ITaskParams taskParams;
 
-  // The threadpool on which the tasks are executed.
+  // The executor on which the subtasks are executed.
   protected ExecutorService executor;
 
   // The sequence of task lists that should be executed.
@@ -77,15 +67,10 @@ public abstract class AbstractTaskBase implements ITask {
   @Override
   public abstract void run();
 
-  // Create an task pool which can handle an unbounded number of tasks, while using an initial set
-  // of threads which get spawned upto TASK_THREADS limit.
+  // Create an executor which can handle an unbounded number of subtasks, running up to
+  // TASK_THREADS of them at a time on the threadpool shared by all the tasks.
   public void createThreadpool() {
-    ThreadFactory namedThreadFactory =
-        new ThreadFactoryBuilder().setNameFormat("TaskPool-" + getName() + "-%d").build();
-    executor =
-        new ThreadPoolExecutor(TASK_THREADS, TASK_THREADS, THREAD_ALIVE_TIME,
-                               TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-                               namedThreadFactory);
+    executor = SubTaskExecutor.newTaskExecutor(getName(), TASK_THREADS);
   }
 
   @Override
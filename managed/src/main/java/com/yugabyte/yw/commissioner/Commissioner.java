@@ -2,7 +2,9 @@
 
 package com.yugabyte.yw.commissioner;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
@@ -22,8 +24,10 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import play.Configuration;
 import play.libs.Json;
 
 @Singleton
@@ -38,8 +42,11 @@ public class Commissioner {
   // The unit is specified in the API (and is seconds).
   private static final long THREAD_ALIVE_TIME = 60L;
 
+  // The default interval after which progress monitor wakes up and does work.
+  private static final long DEFAULT_PROGRESS_MONITOR_SLEEP_INTERVAL = 300;
+
   // The interval after which progress monitor wakes up and does work.
-  private final long PROGRESS_MONITOR_SLEEP_INTERVAL = 300;
+  private final long progressMonitorSleepInterval;
 
   // The background progress monitor for the tasks.
   static ProgressMonitor progressMonitor;
@@ -52,7 +59,12 @@ public class Commissioner {
   // persisted before removing the task from this map.
   static Map<UUID, TaskRunner> runningTasks = new ConcurrentHashMap<UUID, TaskRunner>();
 
-  public Commissioner() {
+  @Inject
+  public Commissioner(Configuration appConfig) {
+    Long interval = appConfig.getLong("yb.commissioner.heartbeat_interval_ms");
+    progressMonitorSleepInterval = (interval == null || interval <= 0)
+        ? DEFAULT_PROGRESS_MONITOR_SLEEP_INTERVAL
+        : interval;
     // Initialize the tasks threadpool.
     ThreadFactory namedThreadFactory =
         new ThreadFactoryBuilder().setNameFormat("TaskPool-%d").build();
@@ -140,6 +152,8 @@ public class Commissioner {
     @Override
     public void run() {
       while (true) {
+        // The running tasks, heartbeated together with a single update.
+        List<UUID> heartbeatTasks = new ArrayList<>();
         // Loop through all the active tasks.
         Iterator<Entry<UUID, TaskRunner>> iter = runningTasks.entrySet().iterator();
         while (iter.hasNext()) {
@@ -148,7 +162,7 @@ public class Commissioner {
 
           // If the task is still running, update its latest timestamp as a part of the heartbeat.
           if (taskRunner.isTaskRunning()) {
-            taskRunner.doHeartbeat();
+            heartbeatTasks.add(taskRunner.getTaskUUID());
           } else if (taskRunner.hasTaskSucceeded()) {
             LOG.info("Task " + taskRunner.toString() + " has succeeded.");
             // Remove task from the set of live tasks.
@@ -160,11 +174,17 @@ public class Commissioner {
           }
         }
 
+        try {
+          TaskInfo.heartbeat(heartbeatTasks);
+        } catch (Exception e) {
+          LOG.error("Error updating the heartbeat of " + heartbeatTasks.size() + " tasks", e);
+        }
+
         // TODO: Scan the DB for tasks that have failed to make progress and claim one if possible.
 
         // Sleep for the required interval.
         try {
-          Thread.sleep(PROGRESS_MONITOR_SLEEP_INTERVAL);
+          Thread.sleep(progressMonitorSleepInterval);
         } catch (InterruptedException e) {
         }
       }
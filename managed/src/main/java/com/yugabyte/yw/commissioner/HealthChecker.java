@@ -11,13 +11,24 @@
 package com.yugabyte.yw.commissioner;
 
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.stream.Collectors;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -50,12 +61,13 @@ import play.libs.Json;
 
 import akka.actor.ActorSystem;
 import com.google.common.annotations.VisibleForTesting;
-import java.util.concurrent.atomic.AtomicBoolean;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.concurrent.TimeUnit;
 import play.Environment;
 import scala.concurrent.ExecutionContext;
 import scala.concurrent.duration.Duration;
 
+import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.CollectorRegistry;
 
@@ -70,6 +82,13 @@ public class HealthChecker {
   public static final String kUnivNameLabel = "univ_name";
   public static final String kCheckLabel = "check_name";
   public static final String kNodeLabel = "node";
+  public static final String kUnivCheckDurationMetricName = "yb_univ_health_check_duration_ms";
+  public static final String kUnivCheckTimeoutMetricName = "yb_univ_health_check_timeouts";
+
+  private static final int DEFAULT_MAX_PARALLELISM = 10;
+  private static final long DEFAULT_UNIVERSE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+  // Checks waiting for a free check thread, past it the checks of more universes are skipped.
+  private static final int MAX_QUEUED_CHECKS = 1000;
 
   play.Configuration config;
 
@@ -78,17 +97,30 @@ public class HealthChecker {
   private long STATUS_UPDATE_INTERVAL_MS = 0;
 
   // Last time we sent a status update email per customer.
-  private Map<UUID, Long> lastStatusUpdateTimeMap = new HashMap<>();
+  private Map<UUID, Long> lastStatusUpdateTimeMap = new ConcurrentHashMap<>();
 
   // Last time we actually ran the health check script per customer.
-  private Map<UUID, Long> lastCheckTimeMap = new HashMap<>();
+  private Map<UUID, Long> lastCheckTimeMap = new ConcurrentHashMap<>();
+
+  // Checks submitted and not finished yet, per universe. A universe whose previous check is still
+  // running is skipped, without holding back the checks of the other universes.
+  private final Map<UUID, Object> runningChecks = new ConcurrentHashMap<>();
 
   // What will run the health checking script.
   HealthManager healthManager;
 
-  private Gauge healthMetric = null;
+  private Gauge healthMetric;
+
+  private Gauge checkDurationMetric;
+
+  private Counter checkTimeoutMetric;
+
+  // Runs the universe checks, at most yb.health.max_parallelism of them at a time and with at most
+  // MAX_QUEUED_CHECKS of them waiting.
+  private ThreadPoolExecutor checkExecutor;
 
-  private AtomicBoolean running = new AtomicBoolean(false);
+  // Cancels the universe checks running for longer than yb.health.universe_timeout_ms.
+  private ScheduledExecutorService timeoutExecutor;
 
   private final ActorSystem actorSystem;
 
@@ -128,6 +160,14 @@ public class HealthChecker {
   }
 
   private void initialize() {
+    int parallelism = maxParallelism();
+    checkExecutor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(MAX_QUEUED_CHECKS),
+        new ThreadFactoryBuilder().setNameFormat("health-check-%d").setDaemon(true).build());
+    checkExecutor.allowCoreThreadTimeOut(true);
+    timeoutExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("health-check-timeout").setDaemon(true).build());
+
     LOG.info("Scheduling health checker every " + this.healthCheckIntervalMs() + " ms");
     this.actorSystem.scheduler().schedule(
       Duration.create(0, TimeUnit.MILLISECONDS), // initialDelay
@@ -136,14 +176,20 @@ public class HealthChecker {
       this.executionContext
     );
 
-    try {
-      healthMetric = Gauge.build(kUnivMetricName, "Boolean result of health checks").
-                           labelNames(kUnivUUIDLabel, kUnivNameLabel, kNodeLabel, kCheckLabel).
-                           register(this.promRegistry);
-    } catch (IllegalArgumentException e) {
-      LOG.warn("Failed to build prometheus gauge for name: " + kUnivMetricName);
-    }
-
+    healthMetric = Util.registerMetric(
+        Gauge.build(kUnivMetricName, "Boolean result of health checks").
+              labelNames(kUnivUUIDLabel, kUnivNameLabel, kNodeLabel, kCheckLabel),
+        this.promRegistry);
+    checkDurationMetric = Util.registerMetric(
+        Gauge.build(kUnivCheckDurationMetricName,
+                    "Duration of the last health check, in milliseconds").
+              labelNames(kUnivUUIDLabel, kUnivNameLabel),
+        this.promRegistry);
+    checkTimeoutMetric = Util.registerMetric(
+        Counter.build(kUnivCheckTimeoutMetricName,
+                      "Health checks cancelled for running too long").
+                labelNames(kUnivUUIDLabel, kUnivNameLabel),
+        this.promRegistry);
   }
 
   // The interval at which the checker will run.
@@ -160,6 +206,18 @@ public class HealthChecker {
     return interval == null ? 0 : interval;
   }
 
+  // The maximum number of universes checked at the same time.
+  private int maxParallelism() {
+    Integer parallelism = config.getInt("yb.health.max_parallelism");
+    return parallelism == null || parallelism <= 0 ? DEFAULT_MAX_PARALLELISM : parallelism;
+  }
+
+  // How long a single universe check may run before it is cancelled.
+  private long universeTimeoutMs() {
+    Long timeout = config.getLong("yb.health.universe_timeout_ms");
+    return timeout == null || timeout <= 0 ? DEFAULT_UNIVERSE_TIMEOUT_MS : timeout;
+  }
+
   private String ybAlertEmail() {
     return config.getString("yb.health.default_email");
   }
@@ -177,9 +235,6 @@ public class HealthChecker {
         String checkName = entry.path("message").asText();
         Boolean checkResult = entry.path("has_error").asBoolean();
         hasErrors = checkResult || hasErrors;
-        if (null == healthMetric)
-          continue;
-
         Gauge.Child prometheusVal = healthMetric.labels(
           u.universeUUID.toString(),
           u.name,
@@ -197,31 +252,32 @@ public class HealthChecker {
 
   @VisibleForTesting
   void scheduleRunner() {
-    if (running.get()) {
-      LOG.info("Previous run still underway");
-      return;
-    }
-
     LOG.info("Running health checker");
-    running.set(true);
+    // Only submit the checks, they run in parallel on the check executor and the universes still
+    // being checked from a previous run are skipped.
     // TODO(bogdan): This will not be too DB friendly when we go multi-tenant.
+    int submitted = 0;
     for (Customer c : Customer.getAll()) {
       try {
-        checkCustomer(c);
+        submitted += submitCustomerChecks(c).size();
       } catch (Exception ex) {
         LOG.error("Error running health check for customer " + c.uuid, ex);
       }
     }
-    LOG.info("Completed running health checker.");
-    running.set(false);
+    LOG.info("Submitted health checks for " + submitted + " universes.");
   }
 
   public void checkCustomer(Customer c) {
+    waitForChecks(submitCustomerChecks(c));
+  }
+
+  // Submits the checks of the universes of this customer if they are due, and returns them.
+  private List<Future<?>> submitCustomerChecks(Customer c) {
     // We need an alerting config to do work.
     CustomerConfig config = CustomerConfig.getAlertConfig(c.uuid);
     if (config == null) {
       LOG.info("Skipping customer " + c.uuid + " due to missing alerting config...");
-      return;
+      return new ArrayList<>();
     }
     AlertingData alertingData = Json.fromJson(config.data, AlertingData.class);
     long now = (new Date()).getTime();
@@ -247,20 +303,89 @@ public class HealthChecker {
       if (smtpConfig != null) {
         smtpData =  Json.fromJson(smtpConfig.data, SmtpData.class);
       }
-      checkAllUniverses(c, config, shouldSendStatusUpdate, smtpData);
+      return submitAllUniverses(c, config, shouldSendStatusUpdate, smtpData);
     }
+    return new ArrayList<>();
   }
 
   public void checkAllUniverses(
       Customer c, CustomerConfig config, boolean shouldSendStatusUpdate, SmtpData smtpData) {
+    waitForChecks(submitAllUniverses(c, config, shouldSendStatusUpdate, smtpData));
+  }
+
+  private List<Future<?>> submitAllUniverses(
+      Customer c, CustomerConfig config, boolean shouldSendStatusUpdate, SmtpData smtpData) {
     // Process all of a customer's universes.
+    List<Future<?>> checks = new ArrayList<>();
     for (Universe u : c.getUniverses()) {
+      Future<?> check = submitUniverseCheck(u, c, config, shouldSendStatusUpdate, smtpData);
+      if (check != null) {
+        checks.add(check);
+      }
+    }
+    return checks;
+  }
+
+  // Submits the check of one universe, unless the previous one is still running. The check is
+  // cancelled if it runs for longer than the universe timeout, counted from when it starts rather
+  // than when it is queued. The universe stays registered as checked until the check thread is
+  // actually done with it, so that a check ignoring its interrupt never runs next to the next
+  // check of the same universe.
+  private Future<?> submitUniverseCheck(Universe u, Customer c, CustomerConfig config,
+                                        boolean shouldSendStatusUpdate, SmtpData smtpData) {
+    // Identifies this check, so that a late finishing one doesn't unregister the next.
+    Object token = new Object();
+    if (runningChecks.putIfAbsent(u.universeUUID, token) != null) {
+      LOG.info("Previous health check for universe " + u.name + " still underway");
+      return null;
+    }
+    // Set before the check is queued, so that the check can hand its own future to its timeout.
+    AtomicReference<Future<?>> checkRef = new AtomicReference<>();
+    FutureTask<Void> check = new FutureTask<>(() -> {
+      long startMs = System.currentTimeMillis();
+      long timeoutMs = universeTimeoutMs();
+      ScheduledFuture<?> timeout = timeoutExecutor.schedule(() -> {
+        if (checkRef.get().cancel(true)) {
+          LOG.error("Health check for universe " + u.name + " timed out after " + timeoutMs +
+                    " ms, cancelling it.");
+          checkTimeoutMetric.labels(u.universeUUID.toString(), u.name).inc();
+        }
+      }, timeoutMs, TimeUnit.MILLISECONDS);
       try {
         checkSingleUniverse(u, c, config, shouldSendStatusUpdate, smtpData);
       } catch (Exception ex) {
         LOG.error("Error running health check for universe " + u.universeUUID, ex);
+      } finally {
+        timeout.cancel(false);
+        runningChecks.remove(u.universeUUID, token);
+        checkDurationMetric.labels(u.universeUUID.toString(), u.name)
+                           .set(System.currentTimeMillis() - startMs);
       }
-     }
+    }, null);
+    checkRef.set(check);
+    try {
+      checkExecutor.execute(check);
+    } catch (RejectedExecutionException e) {
+      runningChecks.remove(u.universeUUID, token);
+      LOG.warn("Too many health checks waiting, skipping universe " + u.name);
+      return null;
+    }
+    return check;
+  }
+
+  private void waitForChecks(List<Future<?>> checks) {
+    for (Future<?> check : checks) {
+      try {
+        check.get();
+      } catch (CancellationException e) {
+        // Timed out, already logged.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        LOG.error("Error running health check", e.getCause());
+      }
+    }
   }
 
   public void checkSingleUniverse(Universe u, Customer c, CustomerConfig config,
@@ -0,0 +1,195 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yugabyte.yw.common.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
+
+/**
+ * Runs the subtasks of all the user tasks on one shared threadpool.
+ *
+ * Every user task gets its own executor from newTaskExecutor, which runs at most a given number
+ * of its subtasks at a time and queues the others in submission order. Since a task never has
+ * more than that many subtasks in the shared pool, the pool interleaves the subtasks of the
+ * concurrent tasks and a large task can't starve the others. Idle threads of the shared pool
+ * exit, so the number of threads follows the number of subtasks actually running.
+ */
+public final class SubTaskExecutor {
+
+  public static final Logger LOG = LoggerFactory.getLogger(SubTaskExecutor.class);
+
+  // Maximum number of subtasks running at a time across all the user tasks.
+  private static final int SHARED_THREADS = 200;
+
+  // The maximum time that idle threads will wait for new subtasks before terminating.
+  // The unit is specified in the API (and is seconds).
+  private static final long THREAD_ALIVE_TIME = 60L;
+
+  private static final ThreadPoolExecutor sharedPool = createSharedPool();
+
+  private static final Gauge runningSubTasks = Util.registerMetric(
+      Gauge.build("yw_subtasks_running", "Subtasks running on the shared subtask threadpool"),
+      CollectorRegistry.defaultRegistry);
+
+  private static final Gauge queuedSubTasks = Util.registerMetric(
+      Gauge.build("yw_subtasks_queued", "Subtasks waiting for their user task to have a free slot"),
+      CollectorRegistry.defaultRegistry);
+
+  private SubTaskExecutor() {
+  }
+
+  private static ThreadPoolExecutor createSharedPool() {
+    ThreadFactory namedThreadFactory =
+        new ThreadFactoryBuilder().setNameFormat("SubTaskPool-%d").build();
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(SHARED_THREADS, SHARED_THREADS, THREAD_ALIVE_TIME,
+                               TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                               namedThreadFactory);
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Returns an executor for the subtasks of one user task, running on the shared threadpool.
+   *
+   * @param name           : Name of the user task, used to name the threads while they run its
+   *                         subtasks.
+   * @param maxConcurrency : Maximum number of subtasks of this task running at a time.
+   */
+  public static ExecutorService newTaskExecutor(String name, int maxConcurrency) {
+    return new TaskExecutor(name, maxConcurrency);
+  }
+
+  @VisibleForTesting
+  static int getNumRunningThreads() {
+    return sharedPool.getActiveCount();
+  }
+
+  private static final class TaskExecutor extends AbstractExecutorService {
+    private final String name;
+    private final int maxConcurrency;
+
+    // Subtasks submitted while maxConcurrency of them were running, in submission order.
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+
+    // Number of subtasks handed to the shared pool and not finished yet.
+    private int numRunning = 0;
+
+    private boolean shutdown = false;
+
+    TaskExecutor(String name, int maxConcurrency) {
+      this.name = name;
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      synchronized (this) {
+        if (shutdown) {
+          throw new RejectedExecutionException("Executor of task " + name + " is shut down");
+        }
+        if (numRunning >= maxConcurrency) {
+          pending.add(command);
+          queuedSubTasks.inc();
+          return;
+        }
+        numRunning++;
+      }
+      dispatch(command);
+    }
+
+    private void dispatch(Runnable command) {
+      try {
+        sharedPool.execute(() -> runSubTask(command));
+      } catch (RejectedExecutionException e) {
+        onSubTaskDone();
+        throw e;
+      }
+    }
+
+    private void runSubTask(Runnable command) {
+      Thread thread = Thread.currentThread();
+      String threadName = thread.getName();
+      thread.setName(threadName + "-" + name);
+      runningSubTasks.inc();
+      try {
+        command.run();
+      } finally {
+        runningSubTasks.dec();
+        thread.setName(threadName);
+        onSubTaskDone();
+      }
+    }
+
+    // Starts the next pending subtask in the slot of the one that finished.
+    private void onSubTaskDone() {
+      Runnable next;
+      synchronized (this) {
+        next = pending.poll();
+        if (next == null) {
+          numRunning--;
+          notifyAll();
+          return;
+        }
+        queuedSubTasks.dec();
+      }
+      dispatch(next);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+      shutdown = true;
+      List<Runnable> notStarted = new ArrayList<>(pending);
+      queuedSubTasks.dec(pending.size());
+      pending.clear();
+      return notStarted;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+      return shutdown && numRunning == 0 && pending.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+      while (!isTerminated()) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+      }
+      return true;
+    }
+  }
+}
@@ -4,14 +4,22 @@ package com.yugabyte.yw.commissioner;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.yugabyte.yw.models.TaskInfo;
 import com.yugabyte.yw.models.helpers.TaskType;
 import org.slf4j.Logger;
@@ -38,6 +46,9 @@ public class SubTaskGroup implements Runnable {
   // The list of futures to wait for.
   private Map<Future<?>, TaskInfo> futuresMap;
 
+  // The futures of the tasks, in the order the tasks stop running.
+  private BlockingQueue<Future<?>> completedFutures = new LinkedBlockingQueue<>();
+
   private AtomicInteger numTasksCompleted;
 
   // The number of threads to run in parallel.
@@ -82,20 +93,29 @@ public class SubTaskGroup implements Runnable {
     this.subTaskGroupType = subTaskGroupType;
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setSubTaskGroupType(subTaskGroupType);
-      taskInfo.save();
     }
+    TaskInfo.saveAll(taskMap.values());
   }
 
   public UserTaskDetails.SubTaskGroupType getSubTaskGroupType() {
     return subTaskGroupType;
   }
 
+  /**
+   * Sets the state of the group, and of its tasks which have not completed yet. The tasks which
+   * completed keep their own state, set by waitFor.
+   */
   public synchronized void setUserSubTaskState(TaskInfo.State userTaskState) {
     this.userSubTaskState = userTaskState;
+    List<TaskInfo> updated = new ArrayList<>();
     for (TaskInfo taskInfo : taskMap.values()) {
-      taskInfo.setTaskState(userTaskState);
-      taskInfo.save();
+      TaskInfo.State taskState = taskInfo.getTaskState();
+      if (taskState != TaskInfo.State.Success && taskState != TaskInfo.State.Failure) {
+        taskInfo.setTaskState(userTaskState);
+        updated.add(taskInfo);
+      }
     }
+    TaskInfo.saveAll(updated);
   }
 
   public synchronized TaskInfo.State getUserSubTaskState() {
@@ -111,6 +131,10 @@ public class SubTaskGroup implements Runnable {
     return getName() + " : completed " + getNumTasksDone() + " out of " + getNumTasks() + " tasks.";
   }
 
+  /**
+   * Adds a task to this group. Its TaskInfo is only inserted with the ones of the other tasks of
+   * the group, when the group is added to a queue or run.
+   */
   public void addTask(AbstractTaskBase task) {
     LOG.info("Adding task #" + taskMap.size() + ": " + task.toString());
     // Set up corresponding TaskInfo.
@@ -129,7 +153,6 @@ public class SubTaskGroup implements Runnable {
     if (this.subTaskGroupType != null) {
       taskInfo.setSubTaskGroupType(this.subTaskGroupType);
     }
-    taskInfo.save();
     taskMap.put(task, taskInfo);
   }
 
@@ -145,8 +168,8 @@ public class SubTaskGroup implements Runnable {
     for (TaskInfo taskInfo : taskMap.values()) {
       taskInfo.setPosition(position);
       taskInfo.setParentUuid(userTaskUUID);
-      taskInfo.save();
     }
+    TaskInfo.saveAll(taskMap.values());
   }
 
   /**
@@ -161,40 +184,96 @@ public class SubTaskGroup implements Runnable {
       return;
     }
     LOG.info("Running task list {}.", getName());
+    // Insert the task infos not saved yet, the tasks update their own.
+    List<TaskInfo> unsaved = new ArrayList<>();
+    for (TaskInfo taskInfo : taskMap.values()) {
+      if (taskInfo.getTaskUUID() == null) {
+        unsaved.add(taskInfo);
+      }
+    }
+    TaskInfo.saveAll(unsaved);
     for (AbstractTaskBase task : taskMap.keySet()) {
-      Future<?> future = executor.submit(task);
+      // Queue the future as soon as the task stops running, so that waitFor handles the tasks in
+      // the order they finish rather than in the order they were added. This is only done once
+      // the task is really over: done() is called as soon as the future is cancelled, while the
+      // task may still be running.
+      FutureTask<Void> future = new FutureTask<Void>(task, null) {
+        @Override
+        public void run() {
+          try {
+            super.run();
+          } finally {
+            completedFutures.add(this);
+          }
+        }
+      };
       futuresMap.put(future, taskMap.get(task));
+      executor.execute(future);
     }
   }
 
+  /**
+   * Waits for the tasks to complete, marking each one as succeeded or failed as soon as it
+   * completes. Unless errors are ignored, the first failure cancels the remaining tasks. Either
+   * way, this only returns once none of the tasks is running anymore.
+   *
+   * @return true if all the tasks succeeded.
+   */
   public boolean waitFor() {
-    String errorString = null;
-    for (Future<?> future : futuresMap.keySet()) {
-      // Wait for each future to finish.
+    boolean success = true;
+    boolean cancelled = false;
+    for (int numWaiting = futuresMap.size(); numWaiting > 0; numWaiting--) {
+      Future<?> future;
       try {
-        if (future.get() == null) {
-          // Task succeeded.
-          numTasksCompleted.incrementAndGet();
-        } else {
-          errorString = "ERROR: task " + future.toString() + " get() returned null.";
-          LOG.error(errorString);
+        future = completedFutures.take();
+      } catch (InterruptedException e) {
+        LOG.error("Interrupted while waiting for task list {}.", getName());
+        cancelTasks();
+        for (; numWaiting > 0; numWaiting--) {
+          Uninterruptibles.takeUninterruptibly(completedFutures);
         }
-      } catch (Exception e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      TaskInfo taskInfo = futuresMap.get(future);
+      String errorString = null;
+      try {
+        future.get();
+        // Task succeeded.
+        numTasksCompleted.incrementAndGet();
+        taskInfo.setTaskState(TaskInfo.State.Success);
+        taskInfo.save();
+      } catch (CancellationException e) {
+        // Cancelled after another task failed, which is what gets reported.
+        LOG.info("Cancelled task " + future.toString() + " of task list " + getName() + ".");
+      } catch (InterruptedException | ExecutionException e) {
+        Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
         errorString = "Failed to execute task " + future.toString() + ", hit error " +
-            e.getMessage() + ".";
-        LOG.error(errorString, e);
-      } finally {
-        if (errorString != null) {
-          TaskInfo taskInfo = futuresMap.get(future);
-          ObjectNode details = taskInfo.getTaskDetails().deepCopy();
-          details.put("errorString", errorString);
-          taskInfo.setTaskDetails(details);
-          taskInfo.save();
-          return false;
+            cause.getMessage() + ".";
+        LOG.error(errorString, cause);
+      }
+      if (errorString != null) {
+        ObjectNode details = taskInfo.getTaskDetails().deepCopy();
+        details.put("errorString", errorString);
+        taskInfo.setTaskDetails(details);
+        taskInfo.setTaskState(TaskInfo.State.Failure);
+        taskInfo.save();
+        success = false;
+        if (!ignoreErrors && !cancelled) {
+          // The cancelled tasks are still waited for, until they stop running.
+          cancelTasks();
+          cancelled = true;
         }
       }
     }
 
-    return true;
+    return success;
+  }
+
+  // Cancels the tasks which have not completed yet.
+  private void cancelTasks() {
+    for (Future<?> future : futuresMap.keySet()) {
+      future.cancel(true);
+    }
   }
 }
@@ -53,8 +53,9 @@ public class SubTaskGroupQueue {
         if (!subTaskGroup.ignoreErrors) {
           throw new RuntimeException(subTaskGroup.toString() + " failed.");
         }
+      } else {
+        subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
       }
-      subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
     }
   }
 }
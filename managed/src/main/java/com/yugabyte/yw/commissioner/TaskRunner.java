@@ -123,16 +123,6 @@ public class TaskRunner implements Runnable {
     return taskInfo.getTaskState() == TaskInfo.State.Failure;
   }
 
-  /**
-   * This method does two things. First, it updates the timestamp on the task to indicate progress.
-   * Second, it gives the underlying task to checkpoint its work if needed.
-   */
-  public void doHeartbeat() {
-    // Set the last updated timestamp of the task to now by force saving it.
-    taskInfo.markAsDirty();
-    taskInfo.save();
-  }
-
   @Override
   public void run() {
     LOG.info("Running task");
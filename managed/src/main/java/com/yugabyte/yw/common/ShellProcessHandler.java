@@ -10,6 +10,8 @@
 
 package com.yugabyte.yw.common;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,17 +19,38 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Singleton;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 @Singleton
 public class ShellProcessHandler {
     public static final Logger LOG = LoggerFactory.getLogger(ShellProcessHandler.class);
 
+    // Upper bound on the output we keep in memory per stream, only the tail is kept past it.
+    private static final int DEFAULT_MAX_OUTPUT_CHARS = 16 * 1024 * 1024;
+
+    // How long we wait for the output of a command after it exited. Processes it started in the
+    // background can hold its pipes open, we don't wait for those.
+    private static final long STREAM_DRAIN_TIMEOUT_MS = 10000;
+
+    // Same, for a command we killed. Only used to get the end of its stderr.
+    private static final long KILLED_STREAM_DRAIN_TIMEOUT_MS = 1000;
+
+    // Read the output of the commands as they write it, so that they never block on a full pipe.
+    private static final ExecutorService streamReaders = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("shell-stream-%d").setDaemon(true).build());
+
     public static class ShellResponse {
         public int code;
         public String message;
@@ -40,6 +63,38 @@ public class ShellProcessHandler {
         }
     }
 
+    /**
+     * Keeps the last lines written to it, up to a maximum number of characters.
+     */
+    @VisibleForTesting
+    static class TailBuffer {
+        private final long maxChars;
+        private final ArrayDeque<String> lines = new ArrayDeque<>();
+        private long numChars = 0;
+        private boolean truncated = false;
+
+        TailBuffer(long maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        synchronized void add(String line) {
+            lines.addLast(line);
+            numChars += line.length() + 1;
+            while (numChars > maxChars && lines.size() > 1) {
+                numChars -= lines.removeFirst().length() + 1;
+                truncated = true;
+            }
+        }
+
+        synchronized boolean isTruncated() {
+            return truncated;
+        }
+
+        synchronized String getText() {
+            return String.join(System.lineSeparator(), lines).trim();
+        }
+    }
+
     @Inject
     play.Configuration appConfig;
 
@@ -48,6 +103,24 @@ public class ShellProcessHandler {
         List<String> command,
         Map<String, String> extraEnvVars,
         boolean logCmdOutput) {
+        return run(command, extraEnvVars, logCmdOutput, 0 /*timeoutMs*/, null /*lineCallback*/);
+    }
+
+    /**
+     * Runs the command, streaming its output instead of buffering it in temporary files.
+     *
+     * @param timeoutMs if positive, the command is killed after running for this long.
+     * @param lineCallback if not null, called with every line the command writes to stdout, as
+     *                     it writes it. Used to report the progress of long commands.
+     * @return the exit code of the command, and its stdout if it succeeded or the tail of its
+     *         stderr if it failed.
+     */
+    public ShellResponse run(
+        List<String> command,
+        Map<String, String> extraEnvVars,
+        boolean logCmdOutput,
+        long timeoutMs,
+        Consumer<String> lineCallback) {
         ProcessBuilder pb = new ProcessBuilder(command);
         Map envVars = pb.environment();
         if (!extraEnvVars.isEmpty()) {
@@ -61,27 +134,41 @@ public class ShellProcessHandler {
         ShellResponse response = new ShellResponse();
         response.code = -1;
 
-        File tempOutputFile = null;
-        File tempErrorFile = null;
+        Process process = null;
         try {
-            tempOutputFile = File.createTempFile("shell_process_out", "tmp");
-            tempErrorFile = File.createTempFile("shell_process_err", "tmp");
-            pb.redirectOutput(tempOutputFile);
-            pb.redirectError(tempErrorFile);
-            Process process = pb.start();
+            process = pb.start();
+            long maxOutputChars = maxOutputChars();
+            TailBuffer output = new TailBuffer(maxOutputChars);
+            TailBuffer error = new TailBuffer(maxOutputChars);
+            Future<?> outputReader =
+                pumpStream(process.getInputStream(), output, logCmdOutput, lineCallback);
+            Future<?> errorReader = pumpStream(process.getErrorStream(), error, logCmdOutput, null);
+            if (timeoutMs > 0 && !process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                awaitStream(errorReader, KILLED_STREAM_DRAIN_TIMEOUT_MS);
+                response.message = "Command timed out after " + timeoutMs + " ms" +
+                    System.lineSeparator() + error.getText();
+                LOG.error("Command [{}] timed out after {} ms", String.join(" ", command),
+                          timeoutMs);
+                return response;
+            }
             response.code = process.waitFor();
-            String processOutput = fetchStream(new FileInputStream(tempOutputFile), logCmdOutput);
-            String processError = fetchStream(new FileInputStream(tempErrorFile), logCmdOutput);
-            response.message = (response.code == 0) ? processOutput : processError;
+            awaitStream(outputReader, STREAM_DRAIN_TIMEOUT_MS);
+            awaitStream(errorReader, STREAM_DRAIN_TIMEOUT_MS);
+            TailBuffer result = (response.code == 0) ? output : error;
+            if (result.isTruncated()) {
+                LOG.warn("Output of command [{}] is larger than {} characters, only kept its end",
+                         String.join(" ", command), maxOutputChars);
+            }
+            response.message = result.getText();
         } catch (IOException | InterruptedException e) {
             LOG.error(e.getMessage());
             response.message = e.getMessage();
-        } finally {
-            if (tempOutputFile != null && tempOutputFile.exists()) {
-                tempOutputFile.delete();
+            if (process != null) {
+                process.destroyForcibly();
             }
-            if (tempErrorFile != null && tempErrorFile.exists()) {
-                tempErrorFile.delete();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
             }
         }
 
@@ -92,24 +179,46 @@ public class ShellProcessHandler {
         return run(command, extraEnvVars, true /*logCommandOutput*/);
     }
 
-    private static String fetchStream(
+    private long maxOutputChars() {
+        Long maxChars = appConfig.getLong("yb.shell.max_output_chars");
+        return maxChars == null || maxChars <= 0 ? DEFAULT_MAX_OUTPUT_CHARS : maxChars;
+    }
+
+    private static Future<?> pumpStream(
         InputStream inputStream,
-        boolean logCmdOutput) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        BufferedReader br = null;
-        try {
-            br = new BufferedReader(new InputStreamReader(inputStream));
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                sb.append(line + System.lineSeparator());
-                if (logCmdOutput) {
-                    LOG.info(line);
+        TailBuffer buffer,
+        boolean logCmdOutput,
+        Consumer<String> lineCallback) {
+        return streamReaders.submit(() -> {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    buffer.add(line);
+                    if (logCmdOutput) {
+                        LOG.info(line);
+                    }
+                    if (lineCallback != null) {
+                        try {
+                            lineCallback.accept(line);
+                        } catch (Exception e) {
+                            LOG.warn("Error processing command output line: " + e.getMessage());
+                        }
+                    }
                 }
+            } catch (IOException e) {
+                LOG.warn("Error reading command output: " + e.getMessage());
             }
-        } finally {
-            br.close();
-            inputStream.close();
+        });
+    }
+
+    private static void awaitStream(Future<?> reader, long timeoutMs)
+        throws InterruptedException {
+        try {
+            reader.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("Command exited but its output is still open, not waiting for it.");
+        } catch (ExecutionException e) {
+            LOG.warn("Error reading command output: " + e.getMessage());
         }
-        return sb.toString().trim();
     }
 }
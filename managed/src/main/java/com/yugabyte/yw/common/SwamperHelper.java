@@ -21,11 +21,17 @@ import org.slf4j.LoggerFactory;
 import play.libs.Json;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
 
 @Singleton
@@ -130,24 +136,71 @@ public class SwamperHelper {
     return null;
   }
 
-  private void writeTargetJsonFile(String swamperFile, ArrayNode targetsJson) {
-    if (swamperFile != null) {
+  /**
+   * Writes the targets to the given file, unless it already has them. Prometheus reloads the
+   * targets files it sees modified, so unchanged targets are not rewritten. The file is replaced
+   * by renaming a temporary file over it, so that prometheus never reads a partial file.
+   *
+   * @return true if the file was written.
+   */
+  private boolean writeTargetJsonFile(String swamperFile, ArrayNode targetsJson) {
+    if (swamperFile == null) {
+      return false;
+    }
+    Path targetFile = Paths.get(swamperFile);
+    byte[] content = Json.prettyPrint(targetsJson).getBytes(StandardCharsets.UTF_8);
+    Path tempFile = null;
+    try {
+      if (Files.exists(targetFile) && Arrays.equals(Files.readAllBytes(targetFile), content)) {
+        LOG.debug("Swamper Target file is up to date: {}", swamperFile);
+        return false;
+      }
+      // The temporary file doesn't end with .json, so that prometheus doesn't pick it up.
+      tempFile = Files.createTempFile(
+          targetFile.getParent(), "." + targetFile.getFileName(), ".tmp");
       try {
-        FileWriter file = new FileWriter(swamperFile);
-        file.write((Json.prettyPrint(targetsJson)));
-        file.flush();
-        file.close();
-        LOG.info("Wrote Swamper Target file: {}", swamperFile);
-
-      } catch (IOException e) {
-        LOG.error("Unable to write to Swamper Target JSON: {}", swamperFile);
-        throw new RuntimeException(e.getMessage());
+        // Temporary files are only readable by their owner, prometheus needs to read this one.
+        Files.setPosixFilePermissions(tempFile, PosixFilePermissions.fromString("rw-r--r--"));
+      } catch (UnsupportedOperationException e) {
+        // Not a posix file system, the default permissions apply.
       }
+      Files.write(tempFile, content);
+      Files.move(tempFile, targetFile,
+                 StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Wrote Swamper Target file: {}", swamperFile);
+      return true;
+    } catch (IOException e) {
+      LOG.error("Unable to write to Swamper Target JSON: {}", swamperFile);
+      if (tempFile != null) {
+        tempFile.toFile().delete();
+      }
+      throw new RuntimeException(e.getMessage());
     }
   }
 
   public void writeUniverseTargetJson(UUID universeUUID) {
-    Universe universe = Universe.get(universeUUID);
+    writeUniverseTargetJson(Universe.get(universeUUID));
+  }
+
+  /**
+   * Writes the targets files of the given universes, loading them all at once. Used when many
+   * universes change together, only the files whose targets changed are rewritten.
+   */
+  public void writeUniverseTargetJson(Set<UUID> universeUUIDs) {
+    if (universeUUIDs.isEmpty()) {
+      return;
+    }
+    int numWritten = 0;
+    for (Universe universe : Universe.get(universeUUIDs)) {
+      numWritten += writeUniverseTargetJson(universe);
+    }
+    LOG.info("Wrote {} Swamper Target files for {} universes.", numWritten, universeUUIDs.size());
+  }
+
+  // Returns the number of files written.
+  private int writeUniverseTargetJson(Universe universe) {
+    UUID universeUUID = universe.universeUUID;
+    int numWritten = 0;
 
     // Write out the node specific file.
     ArrayNode nodeTargets = Json.newArray();
@@ -156,7 +209,9 @@ public class SwamperHelper {
       nodeTargets.add(getIndividualConfig(
           universe, TargetType.NODE_EXPORT, Collections.singletonList(node), node.nodeName));
     });
-    writeTargetJsonFile(swamperFile, nodeTargets);
+    if (writeTargetJsonFile(swamperFile, nodeTargets)) {
+      numWritten++;
+    }
 
     // Write out the yugabyte specific file.
     ArrayNode ybTargets = Json.newArray();
@@ -174,7 +229,10 @@ public class SwamperHelper {
         });
       }
     }
-    writeTargetJsonFile(swamperFile, ybTargets);
+    if (writeTargetJsonFile(swamperFile, ybTargets)) {
+      numWritten++;
+    }
+    return numWritten;
   }
 
   private void removeUniverseTargetJson(UUID universeUUID, String prefix) {
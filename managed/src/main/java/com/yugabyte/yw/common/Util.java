@@ -12,6 +12,8 @@ import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
 import com.yugabyte.yw.models.Customer;
 import com.yugabyte.yw.models.Universe;
 import com.yugabyte.yw.models.helpers.NodeDetails;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.SimpleCollector;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -42,6 +44,25 @@ public class Util {
     return Joiner.on(",").join(Lists.transform(hostsAndPorts, Functions.toStringFunction()));
   }
 
+  /**
+   * Registers the metric built by the given builder. If a metric of that name is already
+   * registered, e.g. by another instance of its owner, an unregistered metric is returned instead
+   * so that it can still be updated.
+   *
+   * @param builder  Builder of the metric, with its name, help and labels set.
+   * @param registry Registry to register the metric with.
+   * @return The metric, registered or not.
+   */
+  public static <C extends SimpleCollector<?>> C registerMetric(
+      SimpleCollector.Builder<?, C> builder, CollectorRegistry registry) {
+    try {
+      return builder.register(registry);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to register prometheus metric: " + e.getMessage());
+      return builder.create();
+    }
+  }
+
   // Create the list which contains the outcome of 'a - b', i.e., elements in a but not in b.
   public static <T> List<T> ListDiff(List<T> a, List<T> b) {
     List<T> diff = new ArrayList<T> (a.size());
@@ -2,48 +2,282 @@
 
 package com.yugabyte.yw.common.services;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.yb.client.AsyncYBClient;
 import org.yb.client.YBClient;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import play.Configuration;
+
+/**
+ * Hands out YBClients from a pool keyed by master addresses and certificate, so that callers
+ * asking for the same universe share one client, with its connections and Netty threads, instead
+ * of building and tearing one down for every call.
+ *
+ * Every getClient returns a new handle on the shared client, which must be released with
+ * closeClient (or its own close); releasing it again is a no-op. The shared client is only closed
+ * once it has no handles left and has been idle for a while. A background sweeper evicts idle
+ * clients and pings the masters of the others, retiring a client that can't reach any of them. A
+ * change of the master addresses of a universe maps to a new key, so callers transparently get a
+ * new client and the old one is evicted when it goes idle.
+ */
 @Singleton
 public class LocalYBClientService implements YBClientService {
   public static final Logger LOG = LoggerFactory.getLogger(LocalYBClientService.class);
 
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+  private static final long DEFAULT_SWEEP_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+  private static final long PROBE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+  private static final class PooledClient {
+    final String key;
+    final String masterHostPorts;
+    // Shared by all the handles on this client.
+    final AsyncYBClient asyncClient;
+    // Owned by the pool, used to ping the masters and to close the shared AsyncYBClient.
+    final YBClient client;
+    // Number of handles not released yet.
+    int refCount = 0;
+    long lastUsedMs;
+    // Set once the client must not be handed out anymore, it is closed when refCount drops to 0.
+    boolean retired = false;
+    boolean closed = false;
+
+    PooledClient(String key, String masterHostPorts, AsyncYBClient asyncClient) {
+      this.key = key;
+      this.masterHostPorts = masterHostPorts;
+      this.asyncClient = asyncClient;
+      this.client = new YBClient(asyncClient);
+    }
+  }
+
+  /**
+   * What getClient hands out: a YBClient on the pooled client's connections. Closing it releases
+   * it to the pool instead of closing the shared client. Guarded by the service's monitor.
+   */
+  private final class ClientHandle extends YBClient {
+    final PooledClient entry;
+    boolean released = false;
+
+    ClientHandle(PooledClient entry) {
+      super(entry.asyncClient);
+      this.entry = entry;
+    }
+
+    @Override
+    public void close() {
+      closeClient(this, entry.masterHostPorts);
+    }
+
+    @Override
+    public void shutdown() {
+      close();
+    }
+  }
+
+  // Clients that can be handed out, by pool key.
+  private final Map<String, PooledClient> clients = new HashMap<>();
+
+  private final long idleTimeoutMs;
+
+  private final ExecutorService probeExecutor;
+
+  @Inject
+  public LocalYBClientService(Configuration config) {
+    this(config.getLong("yb.client_pool.idle_timeout_ms", DEFAULT_IDLE_TIMEOUT_MS),
+         config.getLong("yb.client_pool.sweep_interval_ms", DEFAULT_SWEEP_INTERVAL_MS));
+  }
+
+  @VisibleForTesting
+  LocalYBClientService(long idleTimeoutMs, long sweepIntervalMs) {
+    this.idleTimeoutMs = idleTimeoutMs;
+    this.probeExecutor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("yb-client-probe-%d").setDaemon(true).build());
+    if (sweepIntervalMs > 0) {
+      ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("yb-client-pool-sweeper").setDaemon(true)
+              .build());
+      sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
   @Override
-  public synchronized YBClient getClient(String masterHostPorts) {
+  public YBClient getClient(String masterHostPorts) {
     return getClient(masterHostPorts, null);
   }
 
   @Override
   public synchronized YBClient getClient(String masterHostPorts, String certFile) {
-    if (masterHostPorts != null) {
-      return getNewClient(masterHostPorts, certFile);
+    if (masterHostPorts == null) {
+      return null;
     }
-    return null;
+    String key = poolKey(masterHostPorts, certFile);
+    PooledClient entry = clients.get(key);
+    if (entry == null) {
+      LOG.info("Creating client masters={}.", masterHostPorts);
+      entry = new PooledClient(key, masterHostPorts, getNewClient(masterHostPorts, certFile));
+      clients.put(key, entry);
+    }
+    entry.refCount++;
+    entry.lastUsedMs = System.currentTimeMillis();
+    return new ClientHandle(entry);
   }
 
   @Override
   public synchronized void closeClient(YBClient client, String masterHostPorts) {
-    if (client != null) {
-      LOG.info("Closing client masters={}.", masterHostPorts);
+    if (client == null) {
+      LOG.warn("Client for masters {} was null, cannot close", masterHostPorts);
+      return;
+    }
+    if (!(client instanceof ClientHandle)) {
+      // Not one of ours.
+      closeQuietly(client, masterHostPorts);
+      return;
+    }
+    ClientHandle handle = (ClientHandle) client;
+    if (handle.released) {
+      LOG.warn("Client for masters {} was already closed", handle.entry.masterHostPorts);
+      return;
+    }
+    handle.released = true;
+    PooledClient entry = handle.entry;
+    entry.refCount--;
+    entry.lastUsedMs = System.currentTimeMillis();
+    if (entry.retired && entry.refCount == 0) {
+      closeEntry(entry);
+    }
+  }
+
+  /**
+   * Closes the clients idle for longer than the idle timeout, then pings the masters of the
+   * remaining ones and retires those that can't reach any master.
+   */
+  @VisibleForTesting
+  void sweep() {
+    try {
+      evictIdleClients(System.currentTimeMillis());
+      probeClients();
+    } catch (Exception e) {
+      LOG.error("Error sweeping the YBClient pool", e);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized void evictIdleClients(long nowMs) {
+    List<PooledClient> idle = new ArrayList<>();
+    for (PooledClient entry : clients.values()) {
+      if (entry.refCount == 0 && nowMs - entry.lastUsedMs >= idleTimeoutMs) {
+        idle.add(entry);
+      }
+    }
+    for (PooledClient entry : idle) {
+      LOG.info("Evicting idle client masters={}.", entry.masterHostPorts);
+      retire(entry);
+    }
+  }
+
+  private void probeClients() {
+    List<PooledClient> toProbe;
+    synchronized (this) {
+      toProbe = new ArrayList<>(clients.values());
+    }
+    for (PooledClient entry : toProbe) {
+      if (!isHealthy(entry)) {
+        LOG.warn("Retiring client masters={}, none of its masters responded to ping.",
+                 entry.masterHostPorts);
+        synchronized (this) {
+          retire(entry);
+        }
+      }
+    }
+  }
+
+  private boolean isHealthy(PooledClient entry) {
+    for (String hostPort : entry.masterHostPorts.split(",")) {
+      final HostAndPort hp = HostAndPort.fromString(hostPort.trim());
+      Future<Boolean> ping = probeExecutor.submit(
+          () -> entry.client.ping(hp.getHost(), hp.getPort()));
       try {
-        client.close();
+        if (ping.get(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
       } catch (Exception e) {
-        LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
+        LOG.debug("Ping of master {} failed: {}", hostPort, e.getMessage());
+        ping.cancel(true);
       }
-    } else {
-      LOG.warn("Client for masters {} was null, cannot close", masterHostPorts);
+    }
+    return false;
+  }
+
+  // Must be called with this service's monitor held.
+  private void retire(PooledClient entry) {
+    if (clients.get(entry.key) == entry) {
+      clients.remove(entry.key);
+    }
+    entry.retired = true;
+    if (entry.refCount == 0) {
+      closeEntry(entry);
+    }
+  }
+
+  // Must be called with this service's monitor held.
+  private void closeEntry(PooledClient entry) {
+    if (!entry.closed) {
+      entry.closed = true;
+      closeQuietly(entry.client, entry.masterHostPorts);
+    }
+  }
+
+  /**
+   * @return the pooled client a handle returned by getClient is on.
+   */
+  @VisibleForTesting
+  static YBClient pooledClient(YBClient handle) {
+    return ((ClientHandle) handle).entry.client;
+  }
+
+  @VisibleForTesting
+  static String poolKey(String masterHostPorts, String certFile) {
+    String[] masters = masterHostPorts.split(",");
+    for (int i = 0; i < masters.length; i++) {
+      masters[i] = masters[i].trim();
+    }
+    Arrays.sort(masters);
+    return String.join(",", masters) + (certFile == null ? "" : "|" + certFile);
+  }
+
+  private void closeQuietly(YBClient client, String masterHostPorts) {
+    LOG.info("Closing client masters={}.", masterHostPorts);
+    try {
+      client.close();
+    } catch (Exception e) {
+      LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
     }
   }
 
-  private YBClient getNewClient(String masterHPs, String certFile) {
-    return new YBClient.YBClientBuilder(masterHPs)
-                       .defaultAdminOperationTimeoutMs(120000)
-                       .sslCertFile(certFile)
-                       .build();
+  private AsyncYBClient getNewClient(String masterHPs, String certFile) {
+    return new AsyncYBClient.AsyncYBClientBuilder(masterHPs)
+                            .defaultAdminOperationTimeoutMs(120000)
+                            .sslCertFile(certFile)
+                            .build();
   }
 }
@@ -745,12 +745,17 @@ public class UniverseController extends AuthenticatedController {
       return ApiResponse.error(BAD_REQUEST, "Invalid Customer UUID: " + customerUUID);
     }
     ArrayNode universes = Json.newArray();
-    // TODO: Restrict the list api json payload, possibly to only include UUID, Name etc
+    // With summary=true only return what list pages need, leaving out the per node details.
+    boolean summary = Boolean.parseBoolean(request().getQueryString("summary"));
     for (Universe universe: customer.getUniverses()) {
+      if (summary) {
+        universes.add(universe.toSummaryJson());
+        continue;
+      }
       ObjectNode universePayload = (ObjectNode) universe.toJson();
       try {
-        UniverseResourceDetails details = UniverseResourceDetails.create(universe.getNodes(),
-            universe.getUniverseDetails());
+        // Memoized, this is the same computation toJson did for the resources.
+        UniverseResourceDetails details = universe.getResourceDetails();
         universePayload.put("pricePerHour", details.pricePerHour);
       } catch (Exception e) {
         LOG.error("Unable to fetch cost for universe {}.", universe.universeUUID);
@@ -1339,7 +1344,6 @@ public class UniverseController extends AuthenticatedController {
       client = ybService.getClient(hostPorts, certificate);
       ObjectNode result = Json.newObject()
         .put("privateIP", client.getLeaderMasterHostAndPort().getHost());
-      ybService.closeClient(client, hostPorts);
       return ApiResponse.success(result);
     } catch (RuntimeException e) {
       return ApiResponse.error(BAD_REQUEST, e.getMessage());
@@ -25,6 +25,7 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
   private ApiHelper apiHelper;
   private Configuration appConfig;
   private YBMetricQueryComponent ybMetricQueryComponent;
+  private MetricQueryResultCache resultCache;
 
   private Map<String, String> queryParam = new HashMap<>();
   private Map<String, String> additionalFilters = new HashMap<>();
@@ -34,6 +35,14 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
   public MetricQueryExecutor(Configuration appConfig, ApiHelper apiHelper,
                              Map<String, String> queryParam, Map<String, String> additionalFilters,
                              YBMetricQueryComponent ybMetricQueryComponent) {
+    this(appConfig, apiHelper, queryParam, additionalFilters, ybMetricQueryComponent, null);
+  }
+
+  public MetricQueryExecutor(Configuration appConfig, ApiHelper apiHelper,
+                             Map<String, String> queryParam, Map<String, String> additionalFilters,
+                             YBMetricQueryComponent ybMetricQueryComponent,
+                             MetricQueryResultCache resultCache) {
+    this.resultCache = resultCache;
     this.apiHelper = apiHelper;
     this.appConfig = appConfig;
     this.queryParam.putAll(queryParam);
@@ -73,7 +82,7 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
     return metricsUrl;
   }
 
-  private JsonNode getMetrics() {
+  private JsonNode getMetrics() throws Exception {
     boolean useNativeMetrics = appConfig.getBoolean("yb.metrics.useNative", false);
     if (useNativeMetrics) {
       return ybMetricQueryComponent.query(queryParam);
@@ -84,7 +93,11 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
         this.queryUrl = this.getMetricsUrl() + "/query";
       }
       //LOG.info("Executing metric query {}: {}", queryUrl, queryParam);
-      return apiHelper.getRequest(queryUrl, new HashMap<String, String>(), queryParam);
+      if (resultCache == null) {
+        return apiHelper.getRequest(queryUrl, new HashMap<String, String>(), queryParam);
+      }
+      return resultCache.get(queryUrl, queryParam,
+          () -> apiHelper.getRequest(queryUrl, new HashMap<String, String>(), queryParam));
     }
   }
 
@@ -6,9 +6,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.yugabyte.yw.common.ApiHelper;
+import com.yugabyte.yw.common.Util;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,15 +29,30 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class MetricQueryHelper {
 
   public static final Logger LOG = LoggerFactory.getLogger(MetricQueryHelper.class);
   public static final Integer STEP_SIZE =  100;
-  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 5;
+  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 32;
+  public static final Integer QUERY_EXECUTOR_QUEUE_SIZE = 1000;
+  public static final long DEFAULT_CACHE_TTL_MS = 10000;
+
+  private static final Gauge queuedQueries = Util.registerMetric(
+      Gauge.build("yw_metric_query_queue_size", "Metric queries waiting for a query thread"),
+      CollectorRegistry.defaultRegistry);
+
+  // Shared by all the metric requests, so that concurrent dashboards can't start an unbounded
+  // number of threads. When the queue is full the request thread runs the query itself.
+  private final ExecutorService threadPool = createThreadPool();
+
+  private volatile MetricQueryResultCache resultCache;
+
   @Inject
   Configuration appConfig;
 
@@ -88,17 +107,18 @@ public class MetricQueryHelper {
       return responseJson;
     }
 
-    ExecutorService threadPool = Executors.newFixedThreadPool(QUERY_EXECUTOR_THREAD_POOL);
+    MetricQueryResultCache cache = getResultCache();
     Set<Future<JsonNode>> futures = new HashSet<Future<JsonNode>>();
     for (String metricKey : metricKeys) {
       Map<String, String> queryParams = params;
       queryParams.put("queryKey", metricKey);
       Callable<JsonNode> callable = new MetricQueryExecutor(appConfig, apiHelper,
                                                             queryParams, additionalFilters,
-                                                            ybMetricQueryComponent);
+                                                            ybMetricQueryComponent, cache);
       Future<JsonNode> future = threadPool.submit(callable);
       futures.add(future);
     }
+    queuedQueries.set(((ThreadPoolExecutor) threadPool).getQueue().size());
 
 
     for (Future<JsonNode> future : futures) {
@@ -115,10 +135,31 @@ public class MetricQueryHelper {
 
       responseJson.set(response.get("queryKey").asText(), response);
     }
-    threadPool.shutdown();
     return responseJson;
   }
 
+  private MetricQueryResultCache getResultCache() {
+    if (resultCache == null) {
+      synchronized (this) {
+        if (resultCache == null) {
+          resultCache = new MetricQueryResultCache(
+              appConfig.getLong("yb.metrics.cache_ttl_ms", DEFAULT_CACHE_TTL_MS));
+        }
+      }
+    }
+    return resultCache;
+  }
+
+  private static ExecutorService createThreadPool() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        QUERY_EXECUTOR_THREAD_POOL, QUERY_EXECUTOR_THREAD_POOL, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(QUERY_EXECUTOR_QUEUE_SIZE),
+        new ThreadFactoryBuilder().setNameFormat("metric-query-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
 
 
   /**
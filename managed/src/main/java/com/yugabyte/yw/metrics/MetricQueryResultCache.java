@@ -0,0 +1,129 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yugabyte.yw.common.Util;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short lived cache of metric query responses. Identical queries running at the same time share
+ * one request to the metrics server, and their response is reused for a few seconds, so that
+ * dashboards refreshing in many browsers hit the server once per refresh.
+ *
+ * Queries are identified by their url and parameters, with the time range aligned to the query
+ * step: requests made a few seconds apart for the same graph get the same key.
+ */
+public class MetricQueryResultCache {
+  public static final Logger LOG = LoggerFactory.getLogger(MetricQueryResultCache.class);
+
+  private static final int MAX_CACHED_RESULTS = 10000;
+
+  // Parameters that don't change the result of a query.
+  private static final String CACHE_BUSTER_PARAM = "_";
+  private static final String QUERY_KEY_PARAM = "queryKey";
+
+  private static final Counter queryResults = Util.registerMetric(
+      Counter.build("yw_metric_query_results_total", "Metric queries by how they were answered")
+             .labelNames("source"),
+      CollectorRegistry.defaultRegistry);
+
+  private final long ttlMs;
+
+  // Successful responses, by query key.
+  private final Cache<String, JsonNode> results;
+
+  // Queries being sent to the metrics server, by query key.
+  private final Map<String, CompletableFuture<JsonNode>> inflight = new ConcurrentHashMap<>();
+
+  public MetricQueryResultCache(long ttlMs) {
+    this.ttlMs = ttlMs;
+    this.results = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_RESULTS)
+        .expireAfterWrite(Math.max(ttlMs, 0), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the response to the given query, from the cache, from an identical query already
+   * running, or else by calling the loader. Error responses are not cached.
+   */
+  public JsonNode get(String url, Map<String, String> params, Callable<JsonNode> loader)
+      throws Exception {
+    String key = cacheKey(url, params);
+    JsonNode cached = results.getIfPresent(key);
+    if (cached != null) {
+      queryResults.labels("cache").inc();
+      return cached;
+    }
+
+    CompletableFuture<JsonNode> ours = new CompletableFuture<>();
+    CompletableFuture<JsonNode> running = inflight.putIfAbsent(key, ours);
+    if (running != null) {
+      queryResults.labels("coalesced").inc();
+      try {
+        return running.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof Exception ? (Exception) cause : e;
+      }
+    }
+
+    queryResults.labels("server").inc();
+    try {
+      JsonNode result = loader.call();
+      if (ttlMs > 0 && result != null && !result.has("error")) {
+        results.put(key, result);
+      }
+      ours.complete(result);
+      return result;
+    } catch (Exception e) {
+      ours.completeExceptionally(e);
+      throw e;
+    } finally {
+      inflight.remove(key, ours);
+    }
+  }
+
+  @VisibleForTesting
+  static String cacheKey(String url, Map<String, String> params) {
+    Map<String, String> keyParams = new TreeMap<>(params);
+    keyParams.remove(CACHE_BUSTER_PARAM);
+    keyParams.remove(QUERY_KEY_PARAM);
+    long step = parseLong(keyParams.get("step"));
+    if (step > 0) {
+      for (String timeParam : new String[] {"start", "end", "time"}) {
+        long time = parseLong(keyParams.get(timeParam));
+        if (time > 0) {
+          keyParams.put(timeParam, Long.toString(time - time % step));
+        }
+      }
+    }
+    return url + "?" + keyParams;
+  }
+
+  private static long parseLong(String value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
@@ -2,6 +2,8 @@
 
 package com.yugabyte.yw.models;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -187,6 +189,45 @@ public class TaskInfo extends Model {
     return find.byId(taskUUID);
   }
 
+  /**
+   * Sets the last updated timestamp of the given tasks to now, with a single statement, so that
+   * they are considered to be alive.
+   *
+   * @param taskUUIDs : the tasks to heartbeat.
+   * @return the number of tasks updated.
+   */
+  public static int heartbeat(Collection<UUID> taskUUIDs) {
+    if (taskUUIDs.isEmpty()) {
+      return 0;
+    }
+    String updateQuery = "UPDATE task_info SET update_time = :now WHERE uuid IN (:uuids)";
+    SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
+    update.setParameter("now", new Date());
+    update.setParameter("uuids", new ArrayList<>(taskUUIDs));
+    return Ebean.execute(update);
+  }
+
+  /**
+   * Inserts or updates all the given tasks in one transaction, batching the statements.
+   *
+   * @param taskInfos : the tasks to save.
+   */
+  public static void saveAll(Collection<TaskInfo> taskInfos) {
+    if (taskInfos.isEmpty()) {
+      return;
+    }
+    Transaction transaction = Ebean.beginTransaction();
+    try {
+      transaction.setBatchMode(true);
+      for (TaskInfo taskInfo : taskInfos) {
+        taskInfo.save();
+      }
+      Ebean.commitTransaction();
+    } finally {
+      Ebean.endTransaction();
+    }
+  }
+
   public List<TaskInfo> getSubTasks() {
     Query<TaskInfo> subTaskQuery = TaskInfo.find.query().where()
         .eq("parent_uuid", getTaskUUID())
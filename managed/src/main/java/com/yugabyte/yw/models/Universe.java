@@ -2,7 +2,11 @@
 
 package com.yugabyte.yw.models;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.Striped;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -16,6 +20,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import javax.persistence.Column;
@@ -27,12 +34,15 @@ import javax.persistence.UniqueConstraint;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.yugabyte.yw.cloud.UniverseResourceDetails;
 import com.yugabyte.yw.common.NodeActionType;
+import com.yugabyte.yw.common.Util;
 import com.yugabyte.yw.models.helpers.PlacementInfo;
 import com.yugabyte.yw.models.CertificateInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.ebean.*;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
 import io.ebean.annotation.DbJson;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -62,6 +72,56 @@ public class Universe extends Model {
   public static final String TAKE_BACKUPS = "takeBackups";
   public static final String HELM2_LEGACY = "helm2Legacy";
 
+  // Updates to the same universe are serialized on one of these locks, updates to different
+  // universes mostly go through in parallel. The version check in compareAndSwap still guards
+  // against writers in other processes.
+  private static final Striped<Lock> UPDATE_LOCKS = Striped.lock(256);
+
+  // Backoff between retries of a conflicting update, a random sleep in [0, min(cap, base * 2^n)].
+  private static final int MAX_UPDATE_ATTEMPTS = 10;
+  private static final long UPDATE_RETRY_BASE_SLEEP_MS = 20;
+  private static final long UPDATE_RETRY_MAX_SLEEP_MS = 1000;
+
+  private static final Counter updateConflicts = Util.registerMetric(
+      Counter.build("yw_universe_update_conflicts_total",
+                    "Universe updates that lost the version compare and swap and were retried"),
+      CollectorRegistry.defaultRegistry);
+  private static final Counter updateLockWaitMs = Util.registerMetric(
+      Counter.build("yw_universe_update_lock_wait_ms_total",
+                    "Time spent waiting for the per-universe update lock, in milliseconds"),
+      CollectorRegistry.defaultRegistry);
+
+  // How long the price and DNS name we derive from a given version of the universe stay valid.
+  // They also depend on price components and providers, which change rarely.
+  private static final long DERIVED_DETAILS_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Parsed details of one version of a universe, plus values derived from them that are costly to
+   * recompute. The details tree is never handed out, every Universe gets its own bound copy.
+   */
+  private static final class CachedDetails {
+    final int version;
+    final JsonNode detailsJson;
+    // Memoized by getResourceDetails and getDnsName, with the time they were computed.
+    UniverseResourceDetails resources;
+    long resourcesComputedMs;
+    String dnsNameFor;
+    String dnsName;
+    long dnsNameComputedMs;
+
+    CachedDetails(int version, JsonNode detailsJson) {
+      this.version = version;
+      this.detailsJson = detailsJson;
+    }
+  }
+
+  // Details of recently loaded universes, by universe UUID. An entry is only used for the version
+  // it was built from, so updates from other processes are picked up on the next read.
+  private static final Cache<UUID, CachedDetails> detailsCache = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .expireAfterAccess(30, TimeUnit.MINUTES)
+      .build();
+
   public enum HelmLegacy {
     V3,
     V2TO3
@@ -126,6 +186,23 @@ public class Universe extends Model {
   }
 
   public String getDnsName() {
+    CachedDetails cached = getCachedDetails();
+    if (cached == null) {
+      return computeDnsName();
+    }
+    long nowMs = System.currentTimeMillis();
+    synchronized (cached) {
+      if (!name.equals(cached.dnsNameFor) ||
+          nowMs - cached.dnsNameComputedMs > DERIVED_DETAILS_TTL_MS) {
+        cached.dnsName = computeDnsName();
+        cached.dnsNameFor = name;
+        cached.dnsNameComputedMs = nowMs;
+      }
+      return cached.dnsName;
+    }
+  }
+
+  private String computeDnsName() {
     Provider p = Provider.get(
         UUID.fromString(universeDetails.getPrimaryCluster().userIntent.provider));
     if (p == null) {
@@ -138,6 +215,75 @@ public class Universe extends Model {
     return String.format("%s.%s.%s", name, Customer.get(p.customerUUID).code, dnsSuffix);
   }
 
+  /**
+   * Returns the resources and price of this universe. Computing them takes a few lookups per node,
+   * so they are memoized per universe version for a few minutes.
+   */
+  @JsonIgnore
+  public UniverseResourceDetails getResourceDetails() {
+    CachedDetails cached = getCachedDetails();
+    if (cached == null) {
+      return UniverseResourceDetails.create(getNodes(), getUniverseDetails());
+    }
+    long nowMs = System.currentTimeMillis();
+    synchronized (cached) {
+      if (cached.resources == null ||
+          nowMs - cached.resourcesComputedMs > DERIVED_DETAILS_TTL_MS) {
+        cached.resources = UniverseResourceDetails.create(getNodes(), getUniverseDetails());
+        cached.resourcesComputedMs = nowMs;
+      }
+      return cached.resources;
+    }
+  }
+
+  // Returns the cache entry for the version of this universe, or null if there is none.
+  private CachedDetails getCachedDetails() {
+    if (universeUUID == null) {
+      return null;
+    }
+    CachedDetails cached = detailsCache.getIfPresent(universeUUID);
+    return cached != null && cached.version == version ? cached : null;
+  }
+
+  /**
+   * Returns a light version of toJson for list pages: the universe resources and the clusters,
+   * without the per node details.
+   */
+  public JsonNode toSummaryJson() {
+    ObjectNode json = Json.newObject()
+        .put("universeUUID", universeUUID.toString())
+        .put("name", name)
+        .put("creationDate", creationDate.toString())
+        .put("version", version);
+    String dnsName = getDnsName();
+    if (dnsName != null) {
+      json.put("dnsName", dnsName);
+    }
+    UniverseDefinitionTaskParams params = getUniverseDetails();
+    try {
+      UniverseResourceDetails resources = getResourceDetails();
+      json.set("resources", Json.toJson(resources));
+      json.put("pricePerHour", resources.pricePerHour);
+    } catch (Exception e) {
+      json.set("resources", null);
+    }
+    ObjectNode universeDetailsJson = Json.newObject()
+        .put("updateInProgress", params.updateInProgress)
+        .put("updateSucceeded", params.updateSucceeded)
+        .put("nodePrefix", params.nodePrefix);
+    ArrayNode clustersArrayJson = Json.newArray();
+    for (Cluster cluster : params.clusters) {
+      JsonNode clusterJson = cluster.toJson();
+      if (clusterJson != null) {
+        clustersArrayJson.add(clusterJson);
+      }
+    }
+    universeDetailsJson.set("clusters", clustersArrayJson);
+    json.set("universeDetails", universeDetailsJson);
+    json.set("universeConfig", this.config);
+    return json;
+  }
+
   public JsonNode toJson() {
     ObjectNode json = Json.newObject()
         .put("universeUUID", universeUUID.toString())
@@ -150,7 +296,7 @@ public class Universe extends Model {
     }
     UniverseDefinitionTaskParams params = getUniverseDetails();
     try {
-      json.set("resources", Json.toJson(UniverseResourceDetails.create(getNodes(), params)));
+      json.set("resources", Json.toJson(getResourceDetails()));
     } catch (Exception e) {
       json.set("resources", null);
     }
@@ -237,8 +383,22 @@ public class Universe extends Model {
       throw new RuntimeException("Cannot find universe " + universeUUID);
     }
 
-    JsonNode detailsJson = Json.parse(universe.universeDetailsJson);
-    universe.universeDetails = Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
+    universe.loadDetails();
+
+    // Return the universe object.
+    return universe;
+  }
+
+  // Binds the universe details from the cached tree of this version, parsing the json column
+  // only on a cache miss.
+  private void loadDetails() {
+    CachedDetails cached = getCachedDetails();
+    if (cached == null) {
+      cached = new CachedDetails(version, Json.parse(universeDetailsJson));
+      detailsCache.put(universeUUID, cached);
+    }
+    JsonNode detailsJson = cached.detailsJson;
+    universeDetails = Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
 
     // For backwards compatibility from {universeDetails: {"userIntent": <foo>, "placementInfo": <bar>}}
     // to {universeDetails: {clusters: [{"userIntent": <foo>, "placementInfo": <bar>},...]}}
@@ -246,21 +406,31 @@ public class Universe extends Model {
         (!detailsJson.has("clusters") || detailsJson.get("clusters").size() == 0)) {
       UserIntent userIntent = Json.fromJson(detailsJson.get("userIntent"), UserIntent.class);
       PlacementInfo placementInfo = Json.fromJson(detailsJson.get("placementInfo"), PlacementInfo.class);
-      universe.universeDetails.upsertPrimaryCluster(userIntent, placementInfo);
+      universeDetails.upsertPrimaryCluster(userIntent, placementInfo);
     }
-
-    // Return the universe object.
-    return universe;
   }
 
   public static Set<Universe> get(Set<UUID> universeUUIDs) {
+    // Fetch all the rows in one query instead of one query per universe.
+    List<Universe> found = find.query().where().idIn(universeUUIDs).findList();
+    if (found.size() != universeUUIDs.size()) {
+      Set<UUID> missing = new HashSet<>(universeUUIDs);
+      found.forEach(universe -> missing.remove(universe.universeUUID));
+      throw new RuntimeException("Cannot find universe " + missing.iterator().next());
+    }
     Set<Universe> universes = new HashSet<Universe>();
-    for (UUID universeUUID : universeUUIDs) {
-      universes.add(Universe.get(universeUUID));
+    for (Universe universe : found) {
+      universe.loadDetails();
+      universes.add(universe);
     }
     return universes;
   }
 
+  @VisibleForTesting
+  static void clearDetailsCache() {
+    detailsCache.invalidateAll();
+  }
+
   public static Universe getUniverseByName(String universeName) {
     if (checkIfUniverseExists(universeName)) {
       return find.query().where().eq("name", universeName).findOne();
@@ -277,16 +447,23 @@ public class Universe extends Model {
   }
 
   // Helper api to make an atomic read of universe version, and compare and swap the
-  // updated version to disk.
-  private static synchronized Universe readModifyWrite(UUID universeUUID,
-                                                       UniverseUpdater updater)
+  // updated version to disk. Only updates to the same universe wait for each other.
+  private static Universe readModifyWrite(UUID universeUUID, UniverseUpdater updater)
       throws ConcurrentModificationException {
-    Universe universe = Universe.get(universeUUID);
-    // Update the universe object which is supplied as a lambda function.
-    updater.run(universe);
-    // Save the universe object by doing a compare and swap.
-    universe.compareAndSwap();
-    return universe;
+    Lock lock = UPDATE_LOCKS.get(universeUUID);
+    long startMs = System.currentTimeMillis();
+    lock.lock();
+    try {
+      updateLockWaitMs.inc(System.currentTimeMillis() - startMs);
+      Universe universe = Universe.get(universeUUID);
+      // Update the universe object which is supplied as a lambda function.
+      updater.run(universe);
+      // Save the universe object by doing a compare and swap.
+      universe.compareAndSwap();
+      return universe;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -297,31 +474,34 @@ public class Universe extends Model {
    * @return the updated version of the object if successful, or throws an exception.
    */
   public static Universe saveDetails(UUID universeUUID, UniverseUpdater updater) {
-    int numRetriesLeft = 10;
-    long sleepTimeMillis = 100;
     // Try the read and update for a few times till it succeeds.
-    Universe universe = null;
-    while (numRetriesLeft > 0) {
+    for (int attempt = 1; ; attempt++) {
       try {
-        universe = readModifyWrite(universeUUID, updater);
-        break;
+        return readModifyWrite(universeUUID, updater);
       } catch (ConcurrentModificationException e) {
-        // Decrement retries.
-        numRetriesLeft--;
+        updateConflicts.inc();
         // If we are out of retries, fail the task.
-        if (numRetriesLeft == 0) {
+        if (attempt >= MAX_UPDATE_ATTEMPTS) {
           throw e;
         }
-        // If we have more retries left, wait and retry.
+        // If we have more retries left, wait and retry. The jitter keeps writers that collided
+        // from colliding again on the next attempt.
+        long sleepTimeMillis = getUpdateRetrySleepMs(attempt);
+        LOG.debug("Update of universe {} conflicted on attempt {}, retrying in {} ms.",
+                  universeUUID, attempt, sleepTimeMillis);
         try {
           Thread.sleep(sleepTimeMillis);
         } catch (InterruptedException e1) {
           LOG.error("Error while sleeping", e1);
         }
-        continue;
       }
     }
-    return universe;
+  }
+
+  static long getUpdateRetrySleepMs(int attempt) {
+    long ceiling = Math.min(UPDATE_RETRY_MAX_SLEEP_MS,
+                            UPDATE_RETRY_BASE_SLEEP_MS << Math.min(attempt, 16));
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
   }
 
   /**
@@ -337,6 +517,7 @@ public class Universe extends Model {
     // Delete the universe.
     LOG.info("Deleting universe " + universe.name + ":" + universeUUID);
     universe.delete();
+    detailsCache.invalidate(universeUUID);
   }
 
   /**
@@ -588,7 +769,8 @@ public class Universe extends Model {
    */
   private int compareAndSwap() {
     // Update the universe details json.
-    universeDetailsJson = Json.stringify(Json.toJson(universeDetails));
+    JsonNode detailsJson = Json.toJson(universeDetails);
+    universeDetailsJson = Json.stringify(detailsJson);
 
     // Create the new version number.
     int newVersion = this.version + 1;
@@ -616,8 +798,10 @@ public class Universe extends Model {
       System.exit(1);
     }
 
-    // Update and return the current version number.
+    // Update and return the current version number. The tree we just wrote becomes the cached
+    // details of the new version.
     this.version = newVersion;
+    detailsCache.put(universeUUID, new CachedDetails(newVersion, detailsJson));
     return this.version;
   }
 
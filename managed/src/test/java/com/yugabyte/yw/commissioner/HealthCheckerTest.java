@@ -43,6 +43,7 @@ import play.libs.Json;
 import scala.concurrent.ExecutionContext;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 import io.prometheus.client.CollectorRegistry;
@@ -360,6 +361,117 @@ public class HealthCheckerTest extends FakeDBApplication {
     verifyHealthManager(univ2, null);
   }
 
+  @Test
+  public void testSlowUniverseTimesOutWithoutBlockingOthers() {
+    when(mockConfig.getLong("yb.health.universe_timeout_ms")).thenReturn(500L);
+    Universe univ1 = setupUniverse("univ1");
+    Universe univ2 = setupUniverse("univ2");
+    setupAlertingData(null, false, false);
+    ShellProcessHandler.ShellResponse okResponse =
+        ShellProcessHandler.ShellResponse.create(0, "{\"error\": false, \"data\": []}");
+    when(mockHealthManager.runCommand(
+        any(), any(), eq("univ1"), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      Thread.sleep(30000);
+      return okResponse;
+    });
+
+    long startMs = System.currentTimeMillis();
+    healthChecker.checkAllUniverses(defaultCustomer, customerConfig, true, null);
+    assertTrue(System.currentTimeMillis() - startMs < 30000);
+    verifyHealthManager(univ2, null);
+
+    String[] labels = { HealthChecker.kUnivUUIDLabel, HealthChecker.kUnivNameLabel };
+    assertEquals(1.0, testRegistry.getSampleValue(HealthChecker.kUnivCheckTimeoutMetricName,
+        labels, new String[] { univ1.universeUUID.toString(), univ1.name }), 0);
+    assertNotNull(testRegistry.getSampleValue(HealthChecker.kUnivCheckDurationMetricName,
+        labels, new String[] { univ2.universeUUID.toString(), univ2.name }));
+  }
+
+  @Test
+  public void testQueuedCheckIsNotTimedOut() {
+    when(mockConfig.getInt("yb.health.max_parallelism")).thenReturn(1);
+    when(mockConfig.getLong("yb.health.universe_timeout_ms")).thenReturn(700L);
+    testRegistry = new CollectorRegistry();
+    healthChecker = new HealthChecker(
+        mockActorSystem,
+        mockConfig,
+        mockEnvironment,
+        mockExecutionContext,
+        mockHealthManager,
+        testRegistry);
+    Universe univ1 = setupUniverse("univ1");
+    Universe univ2 = setupUniverse("univ2");
+    setupAlertingData(null, false, false);
+    ShellProcessHandler.ShellResponse okResponse =
+        ShellProcessHandler.ShellResponse.create(0, "{\"error\": false, \"data\": []}");
+    // Each check fits in the timeout, but the second one waits for the first one to finish.
+    when(mockHealthManager.runCommand(
+        any(), any(), any(), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      Thread.sleep(400);
+      return okResponse;
+    });
+
+    healthChecker.checkAllUniverses(defaultCustomer, customerConfig, true, null);
+    verifyHealthManager(univ1, null);
+    verifyHealthManager(univ2, null);
+
+    String[] labels = { HealthChecker.kUnivUUIDLabel, HealthChecker.kUnivNameLabel };
+    for (Universe u : new Universe[] { univ1, univ2 }) {
+      String[] values = { u.universeUUID.toString(), u.name };
+      assertNull(testRegistry.getSampleValue(HealthChecker.kUnivCheckTimeoutMetricName,
+                                             labels, values));
+      assertTrue(testRegistry.getSampleValue(HealthChecker.kUnivCheckDurationMetricName,
+                                             labels, values) >= 400);
+    }
+  }
+
+  @Test
+  public void testTimedOutCheckIsNotRunTwice() throws Exception {
+    when(mockConfig.getLong("yb.health.universe_timeout_ms")).thenReturn(500L);
+    Universe u = setupUniverse("univ1");
+    setupAlertingData(null, false, false);
+    ShellProcessHandler.ShellResponse okResponse =
+        ShellProcessHandler.ShellResponse.create(0, "{\"error\": false, \"data\": []}");
+    CountDownLatch finish = new CountDownLatch(1);
+    when(mockHealthManager.runCommand(
+        any(), any(), eq("univ1"), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      // Ignores the interrupt of the timeout.
+      boolean finished = false;
+      while (!finished) {
+        try {
+          finish.await();
+          finished = true;
+        } catch (InterruptedException e) {
+          // Keep running.
+        }
+      }
+      return okResponse;
+    });
+
+    healthChecker.checkAllUniverses(defaultCustomer, customerConfig, true, null);
+    // The timed out check is still running, so the universe is skipped.
+    healthChecker.checkAllUniverses(defaultCustomer, customerConfig, true, null);
+    verify(mockHealthManager, times(1)).runCommand(
+        any(), any(), eq("univ1"), any(), any(), any(), any(), any(), any());
+
+    // Once the first check is done, the universe is checked again.
+    finish.countDown();
+    String[] labels = { HealthChecker.kUnivUUIDLabel, HealthChecker.kUnivNameLabel };
+    String[] values = { u.universeUUID.toString(), u.name };
+    long deadlineMs = System.currentTimeMillis() + 10000;
+    while (testRegistry.getSampleValue(HealthChecker.kUnivCheckDurationMetricName,
+                                       labels, values) == null &&
+           System.currentTimeMillis() < deadlineMs) {
+      Thread.sleep(10);
+    }
+    healthChecker.checkAllUniverses(defaultCustomer, customerConfig, true, null);
+    verify(mockHealthManager, times(2)).runCommand(
+        any(), any(), eq("univ1"), any(), any(), any(), any(), any(), any());
+  }
+
   @Test
   public void testNoUniverse() {
     validateNoDevopsCall();
@@ -0,0 +1,87 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubTaskExecutorTest {
+
+  @Test
+  public void testConcurrencyIsLimitedPerTask() throws Exception {
+    ExecutorService executor = SubTaskExecutor.newTaskExecutor("LimitedTask", 2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(executor.submit(() -> {
+        int now = running.incrementAndGet();
+        maxRunning.accumulateAndGet(now, Math::max);
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException e) {
+        }
+        running.decrementAndGet();
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertTrue(maxRunning.get() <= 2);
+  }
+
+  @Test
+  public void testQueuedSubTasksRunInSubmissionOrder() throws Exception {
+    ExecutorService executor = SubTaskExecutor.newTaskExecutor("OrderedTask", 1);
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      final int index = i;
+      futures.add(executor.submit(() -> order.add(index)));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertEquals(5, order.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, order.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void testBusyTaskDoesNotBlockOtherTasks() throws Exception {
+    ExecutorService busy = SubTaskExecutor.newTaskExecutor("BusyTask", 1);
+    ExecutorService other = SubTaskExecutor.newTaskExecutor("OtherTask", 1);
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      busy.submit(() -> {
+        release.await();
+        return null;
+      });
+    }
+    // The busy task holds its only slot, the other task must still run.
+    other.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    release.countDown();
+    busy.shutdown();
+    assertTrue(busy.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void testSubmitAfterShutdown() {
+    ExecutorService executor = SubTaskExecutor.newTaskExecutor("ShutdownTask", 1);
+    executor.shutdown();
+    executor.submit(() -> { });
+  }
+}
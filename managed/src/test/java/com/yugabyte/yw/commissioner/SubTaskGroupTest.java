@@ -0,0 +1,197 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.models.TaskInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.libs.Json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SubTaskGroupTest extends FakeDBApplication {
+
+  // The test subtasks are named after existing task types, as SubTaskGroup looks them up by name.
+  static class WaitForServer extends AbstractTaskBase {
+    final CountDownLatch release;
+
+    WaitForServer(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public JsonNode getTaskDetails() {
+      return Json.newObject();
+    }
+
+    @Override
+    public void run() {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        // Cancelled.
+      }
+    }
+  }
+
+  // Keeps running after being cancelled, until released.
+  static class WaitForDataMove extends AbstractTaskBase {
+    final CountDownLatch release;
+    volatile boolean exited = false;
+
+    WaitForDataMove(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public JsonNode getTaskDetails() {
+      return Json.newObject();
+    }
+
+    @Override
+    public void run() {
+      boolean released = false;
+      while (!released) {
+        try {
+          release.await();
+          released = true;
+        } catch (InterruptedException e) {
+          // Ignored.
+        }
+      }
+      exited = true;
+    }
+  }
+
+  static class DeleteNode extends AbstractTaskBase {
+    @Override
+    public JsonNode getTaskDetails() {
+      return Json.newObject();
+    }
+
+    @Override
+    public void run() {
+      throw new RuntimeException("Node deletion failed");
+    }
+  }
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = SubTaskExecutor.newTaskExecutor("SubTaskGroupTest", 10);
+  }
+
+  @Test(timeout = 10000)
+  public void testFailureCancelsSiblings() {
+    CountDownLatch release = new CountDownLatch(1);
+    WaitForServer slowTask = new WaitForServer(release);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("FailFast", executor);
+    subTaskGroup.addTask(slowTask);
+    subTaskGroup.addTask(new DeleteNode());
+    subTaskGroup.run();
+
+    // The failure is reported while the other task is still waiting, and cancels it.
+    assertFalse(subTaskGroup.waitFor());
+    assertEquals(0, subTaskGroup.getNumTasksDone());
+    assertEquals(1, release.getCount());
+    executor.shutdown();
+    try {
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testFailureWaitsForCancelledTasksToExit() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    WaitForDataMove stubbornTask = new WaitForDataMove(release);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("FailFast", executor);
+    subTaskGroup.addTask(stubbornTask);
+    subTaskGroup.addTask(new DeleteNode());
+    subTaskGroup.run();
+
+    Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(500);
+      } catch (InterruptedException e) {
+        // Release right away.
+      }
+      release.countDown();
+    });
+    releaser.start();
+    // The cancelled task ignores its interrupt, the failure is only reported once it exited.
+    assertFalse(subTaskGroup.waitFor());
+    assertTrue(stubbornTask.exited);
+    releaser.join();
+  }
+
+  @Test(timeout = 10000)
+  public void testIgnoreErrorsWaitsForAllTasks() {
+    CountDownLatch release = new CountDownLatch(0);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("IgnoreErrors", executor, true);
+    subTaskGroup.addTask(new DeleteNode());
+    subTaskGroup.addTask(new WaitForServer(release));
+    subTaskGroup.addTask(new WaitForServer(release));
+    subTaskGroup.run();
+
+    assertFalse(subTaskGroup.waitFor());
+    assertEquals(2, subTaskGroup.getNumTasksDone());
+  }
+
+  @Test(timeout = 10000)
+  public void testTaskStateUpdatedOnCompletion() {
+    CountDownLatch release = new CountDownLatch(0);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("Progress", executor);
+    subTaskGroup.addTask(new WaitForServer(release));
+    subTaskGroup.addTask(new DeleteNode());
+    subTaskGroup.run();
+    subTaskGroup.waitFor();
+
+    int numSucceeded = 0;
+    int numFailed = 0;
+    for (TaskInfo taskInfo : TaskInfo.find.all()) {
+      if (taskInfo.getTaskState() == TaskInfo.State.Success) {
+        numSucceeded++;
+      } else if (taskInfo.getTaskState() == TaskInfo.State.Failure) {
+        assertTrue(taskInfo.getTaskDetails().has("errorString"));
+        numFailed++;
+      }
+    }
+    assertEquals(1, numFailed);
+    assertTrue(numSucceeded <= 1);
+  }
+
+  @Test(timeout = 10000)
+  public void testGroupStateKeepsTaskStates() {
+    CountDownLatch release = new CountDownLatch(0);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("IgnoreErrors", executor, true);
+    subTaskGroup.addTask(new WaitForServer(release));
+    subTaskGroup.addTask(new DeleteNode());
+    subTaskGroup.run();
+    assertFalse(subTaskGroup.waitFor());
+    subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
+
+    int numSucceeded = 0;
+    int numFailed = 0;
+    for (TaskInfo taskInfo : TaskInfo.find.all()) {
+      if (taskInfo.getTaskState() == TaskInfo.State.Success) {
+        numSucceeded++;
+      } else if (taskInfo.getTaskState() == TaskInfo.State.Failure) {
+        numFailed++;
+      }
+    }
+    assertEquals(1, numSucceeded);
+    assertEquals(1, numFailed);
+  }
+}
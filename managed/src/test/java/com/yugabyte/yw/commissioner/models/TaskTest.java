@@ -3,10 +3,14 @@ package com.yugabyte.yw.commissioner.models;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.yugabyte.yw.models.helpers.TaskType;
@@ -61,4 +65,49 @@ public class TaskTest extends FakeDBApplication {
     taskInfo.save();
     assertNotEquals(taskInfo.getLastUpdateTime(), taskInfo.getCreationTime());
   }
+
+  private TaskInfo createTaskInfo(TaskType taskType) {
+    TaskInfo taskInfo = new TaskInfo(taskType);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("test-host");
+    return taskInfo;
+  }
+
+  @Test
+  public void testSaveAll() {
+    List<TaskInfo> taskInfos = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      taskInfos.add(createTaskInfo(TaskType.AnsibleSetupServer));
+    }
+    TaskInfo.saveAll(taskInfos);
+    for (TaskInfo taskInfo : taskInfos) {
+      assertNotNull(taskInfo.getTaskUUID());
+      assertEquals(TaskInfo.State.Created, TaskInfo.get(taskInfo.getTaskUUID()).getTaskState());
+    }
+
+    for (TaskInfo taskInfo : taskInfos) {
+      taskInfo.setTaskState(TaskInfo.State.Running);
+    }
+    TaskInfo.saveAll(taskInfos);
+    for (TaskInfo taskInfo : taskInfos) {
+      assertEquals(TaskInfo.State.Running, TaskInfo.get(taskInfo.getTaskUUID()).getTaskState());
+    }
+  }
+
+  @Test
+  public void testHeartbeat() throws InterruptedException {
+    TaskInfo first = createTaskInfo(TaskType.CreateUniverse);
+    TaskInfo second = createTaskInfo(TaskType.CreateUniverse);
+    TaskInfo.saveAll(Arrays.asList(first, second));
+
+    // Sleep so that the last updated time will be different.
+    Thread.sleep(1000);
+
+    assertEquals(2, TaskInfo.heartbeat(Arrays.asList(first.getTaskUUID(), second.getTaskUUID())));
+    assertTrue(TaskInfo.get(first.getTaskUUID()).getLastUpdateTime()
+                   .after(first.getLastUpdateTime()));
+    assertTrue(TaskInfo.get(second.getTaskUUID()).getLastUpdateTime()
+                   .after(second.getLastUpdateTime()));
+    assertEquals(0, TaskInfo.heartbeat(new ArrayList<>()));
+  }
 }
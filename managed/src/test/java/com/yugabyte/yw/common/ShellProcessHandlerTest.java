@@ -20,6 +20,8 @@ import java.util.List;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -74,10 +76,53 @@ public class ShellProcessHandlerTest {
         assertThat(response.message, allOf(notNullValue(), equalTo("error")));
     }
 
+    @Test
+    public void testRunWithTimeout() throws IOException {
+        String fileName = createTestShellScript("echo \"started\"\nsleep 30");
+        List<String> command = new ArrayList<String>();
+        command.add(fileName);
+        long startMs = System.currentTimeMillis();
+        ShellProcessHandler.ShellResponse response =
+            shellProcessHandler.run(command, new HashMap<>(), false, 500, null);
+        assertTrue(System.currentTimeMillis() - startMs < 30000);
+        assertEquals(-1, response.code);
+        assertThat(response.message, allOf(notNullValue(),
+                startsWith("Command timed out after 500 ms")));
+    }
+
+    @Test
+    public void testRunWithLineCallback() throws IOException {
+        String fileName = createTestShellScript("echo \"line 1\"\necho \"line 2\"");
+        List<String> command = new ArrayList<String>();
+        command.add(fileName);
+        List<String> lines = new ArrayList<>();
+        ShellProcessHandler.ShellResponse response =
+            shellProcessHandler.run(command, new HashMap<>(), false, 0, lines::add);
+        assertEquals(0, response.code);
+        assertEquals("line 1" + System.lineSeparator() + "line 2", response.message);
+        assertEquals(2, lines.size());
+        assertEquals("line 2", lines.get(1));
+    }
+
+    @Test
+    public void testTailBufferKeepsLastLines() {
+        ShellProcessHandler.TailBuffer buffer = new ShellProcessHandler.TailBuffer(10);
+        buffer.add("aaaa");
+        buffer.add("bbbb");
+        assertFalse(buffer.isTruncated());
+        buffer.add("cccc");
+        assertTrue(buffer.isTruncated());
+        assertEquals("bbbb" + System.lineSeparator() + "cccc", buffer.getText());
+    }
+
     private String createTestShellScript() throws IOException {
+        return createTestShellScript(">&2 echo \"error\"\nexit -1");
+    }
+
+    private String createTestShellScript(String content) throws IOException {
         String fileName = TMP_STORAGE_PATH + "/test.sh";
         FileWriter fw = new FileWriter(fileName);
-        fw.write(">&2 echo \"error\"\nexit -1");
+        fw.write(content);
         fw.close();
         // Set the file as a executable
         File file = new File(fileName);
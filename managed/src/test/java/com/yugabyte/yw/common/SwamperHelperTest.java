@@ -4,6 +4,7 @@ package com.yugabyte.yw.common;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.yugabyte.yw.commissioner.Common;
+import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams.UserIntent;
 import com.yugabyte.yw.models.Customer;
 import com.yugabyte.yw.models.Provider;
@@ -24,6 +25,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -95,6 +97,31 @@ public class SwamperHelperTest extends FakeDBApplication {
     }
   }
 
+  @Test
+  public void testUnchangedTargetsAreNotRewritten() {
+    when(appConfig.getString("yb.swamper.targetPath")).thenReturn(SWAMPER_TMP_PATH);
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    u = Universe.saveDetails(u.universeUUID, ApiUtils.mockUniverseUpdater());
+    swamperHelper.writeUniverseTargetJson(u.universeUUID);
+    File targetFile = new File(SWAMPER_TMP_PATH + "yugabyte." + u.universeUUID + ".json");
+    assertTrue(targetFile.exists());
+    assertTrue(targetFile.setLastModified(1000L));
+
+    swamperHelper.writeUniverseTargetJson(Collections.singleton(u.universeUUID));
+    assertThat(targetFile.lastModified(), equalTo(1000L));
+
+    // A change of the labels rewrites the file.
+    Universe.saveDetails(u.universeUUID, universe -> {
+      UniverseDefinitionTaskParams universeDetails = universe.getUniverseDetails();
+      universeDetails.nodePrefix = "other-host";
+      universe.setUniverseDetails(universeDetails);
+    });
+    swamperHelper.writeUniverseTargetJson(Collections.singleton(u.universeUUID));
+    assertNotEquals(1000L, targetFile.lastModified());
+    File[] tempFiles = new File(SWAMPER_TMP_PATH).listFiles((dir, name) -> name.endsWith(".tmp"));
+    assertThat(tempFiles.length, equalTo(0));
+  }
+
   @Test
   public void testRemoveUniverseTargetJson() {
     when(appConfig.getString("yb.swamper.targetPath")).thenReturn(SWAMPER_TMP_PATH);
@@ -0,0 +1,77 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.common.services;
+
+import org.junit.Test;
+import org.yb.client.YBClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LocalYBClientServiceTest {
+  private static final String MASTERS = "10.0.0.1:7100,10.0.0.2:7100,10.0.0.3:7100";
+
+  @Test
+  public void testPoolKey() {
+    assertEquals(LocalYBClientService.poolKey(MASTERS, null),
+        LocalYBClientService.poolKey("10.0.0.3:7100, 10.0.0.1:7100,10.0.0.2:7100", null));
+    assertEquals("10.0.0.1:7100|/certs/ca.crt",
+        LocalYBClientService.poolKey("10.0.0.1:7100", "/certs/ca.crt"));
+  }
+
+  @Test
+  public void testClientsAreShared() {
+    LocalYBClientService service = new LocalYBClientService(1000, 0);
+    assertNull(service.getClient(null));
+    YBClient client = pooled(service.getClient(MASTERS));
+    assertSame(client, pooled(service.getClient("10.0.0.3:7100,10.0.0.2:7100,10.0.0.1:7100")));
+    assertNotSame(client, pooled(service.getClient(MASTERS, "/certs/ca.crt")));
+    assertNotSame(client, pooled(service.getClient("10.0.0.4:7100")));
+  }
+
+  @Test
+  public void testIdleClientsAreEvicted() throws Exception {
+    LocalYBClientService service = new LocalYBClientService(1000, 0);
+    YBClient handle1 = service.getClient(MASTERS);
+    YBClient handle2 = service.getClient(MASTERS);
+    YBClient client = pooled(handle1);
+    service.closeClient(handle1, MASTERS);
+
+    // Still in use by one caller.
+    service.evictIdleClients(System.currentTimeMillis() + 5000);
+    YBClient handle3 = service.getClient(MASTERS);
+    assertSame(client, pooled(handle3));
+
+    service.closeClient(handle2, null);
+    handle3.close();
+    // Idle, but not for long enough.
+    service.evictIdleClients(System.currentTimeMillis());
+    YBClient handle4 = service.getClient(MASTERS);
+    assertSame(client, pooled(handle4));
+    service.closeClient(handle4, MASTERS);
+
+    service.evictIdleClients(System.currentTimeMillis() + 5000);
+    assertNotSame(client, pooled(service.getClient(MASTERS)));
+  }
+
+  @Test
+  public void testHandlesAreReleasedOnce() {
+    LocalYBClientService service = new LocalYBClientService(1000, 0);
+    YBClient handle1 = service.getClient(MASTERS);
+    YBClient handle2 = service.getClient(MASTERS);
+    YBClient client = pooled(handle1);
+    service.closeClient(handle1, MASTERS);
+    service.closeClient(handle1, MASTERS);
+
+    // Releasing the first handle again doesn't release the second one.
+    service.evictIdleClients(System.currentTimeMillis() + 5000);
+    assertSame(client, pooled(service.getClient(MASTERS)));
+    service.closeClient(handle2, MASTERS);
+  }
+
+  private static YBClient pooled(YBClient handle) {
+    return LocalYBClientService.pooledClient(handle);
+  }
+}
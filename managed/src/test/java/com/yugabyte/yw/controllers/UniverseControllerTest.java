@@ -265,6 +265,24 @@ public class UniverseControllerTest extends WithApplication {
     assertAuditEntry(0, customer.uuid);
   }
 
+  @Test
+  public void testUniverseSummaryList() {
+    Universe u = createUniverse(customer.getCustomerId());
+    customer.addUniverseUUID(u.universeUUID);
+    customer.save();
+
+    Result result = doRequestWithAuthToken("GET",
+        "/api/customers/" + customer.uuid + "/universes?summary=true", authToken);
+    assertOk(result);
+    JsonNode json = Json.parse(contentAsString(result));
+    assertTrue(json.isArray());
+    assertEquals(1, json.size());
+    assertValue(json.get(0), "universeUUID", u.universeUUID.toString());
+    assertTrue(json.get(0).get("universeDetails").has("clusters"));
+    assertFalse(json.get(0).get("universeDetails").has("nodeDetailsSet"));
+    assertAuditEntry(0, customer.uuid);
+  }
+
   @Test
   public void testUniverseListWithInvalidUUID() {
     UUID invalidUUID = UUID.randomUUID();
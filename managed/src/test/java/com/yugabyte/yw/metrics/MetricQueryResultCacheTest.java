@@ -0,0 +1,128 @@
+// Copyright (c) YugaByte, Inc.
+package com.yugabyte.yw.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricQueryResultCacheTest {
+
+  private static Map<String, String> rangeParams(String start, String end) {
+    Map<String, String> params = new HashMap<>();
+    params.put("query", "sum(my_metric)");
+    params.put("start", start);
+    params.put("end", end);
+    params.put("step", "60");
+    return params;
+  }
+
+  @Test
+  public void testCacheKeyAlignsTimeRangeToStep() {
+    Map<String, String> first = rangeParams("1481147528", "1481151128");
+    Map<String, String> second = rangeParams("1481147530", "1481151130");
+    second.put("queryKey", "other_key");
+    second.put("_", "1481151131");
+    assertEquals(MetricQueryResultCache.cacheKey("foo://bar/query_range", first),
+                 MetricQueryResultCache.cacheKey("foo://bar/query_range", second));
+
+    Map<String, String> nextStep = rangeParams("1481147588", "1481151188");
+    assertNotEquals(MetricQueryResultCache.cacheKey("foo://bar/query_range", first),
+                    MetricQueryResultCache.cacheKey("foo://bar/query_range", nextStep));
+    assertNotEquals(MetricQueryResultCache.cacheKey("foo://bar/query_range", first),
+                    MetricQueryResultCache.cacheKey("foo://bar/query", first));
+  }
+
+  @Test
+  public void testResultIsCached() throws Exception {
+    MetricQueryResultCache cache = new MetricQueryResultCache(60000);
+    AtomicInteger calls = new AtomicInteger();
+    JsonNode response = Json.parse("{\"status\":\"success\"}");
+    Map<String, String> params = rangeParams("1481147528", "1481151128");
+    cache.get("foo://bar/query_range", params, () -> {
+      calls.incrementAndGet();
+      return response;
+    });
+    JsonNode second = cache.get("foo://bar/query_range", params, () -> {
+      calls.incrementAndGet();
+      return response;
+    });
+    assertSame(response, second);
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testErrorsAreNotCached() throws Exception {
+    MetricQueryResultCache cache = new MetricQueryResultCache(60000);
+    AtomicInteger calls = new AtomicInteger();
+    Map<String, String> params = rangeParams("1481147528", "1481151128");
+    for (int i = 0; i < 2; i++) {
+      cache.get("foo://bar/query_range", params, () -> {
+        calls.incrementAndGet();
+        return Json.parse("{\"status\":\"error\",\"error\":\"timeout\"}");
+      });
+    }
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testZeroTtlDisablesCache() throws Exception {
+    MetricQueryResultCache cache = new MetricQueryResultCache(0);
+    AtomicInteger calls = new AtomicInteger();
+    Map<String, String> params = rangeParams("1481147528", "1481151128");
+    for (int i = 0; i < 2; i++) {
+      cache.get("foo://bar/query_range", params, () -> {
+        calls.incrementAndGet();
+        return Json.newObject();
+      });
+    }
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testConcurrentQueriesAreCoalesced() throws Exception {
+    MetricQueryResultCache cache = new MetricQueryResultCache(0);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    JsonNode response = Json.parse("{\"status\":\"success\"}");
+    Map<String, String> params = rangeParams("1481147528", "1481151128");
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<JsonNode> first = executor.submit(() ->
+          cache.get("foo://bar/query_range", params, () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await();
+            return response;
+          }));
+      started.await();
+      Future<JsonNode> second = executor.submit(() ->
+          cache.get("foo://bar/query_range", params, () -> {
+            calls.incrementAndGet();
+            return Json.newObject();
+          }));
+      // Give the second query time to find the first one running.
+      Thread.sleep(200);
+      release.countDown();
+      assertSame(response, first.get(10, TimeUnit.SECONDS));
+      assertSame(response, second.get(10, TimeUnit.SECONDS));
+      assertEquals(1, calls.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.yugabyte.yw.models;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.yugabyte.yw.cloud.PublicCloudConstants;
 import com.yugabyte.yw.cloud.UniverseResourceDetails;
@@ -123,6 +124,52 @@ public class UniverseTest extends FakeDBApplication {
     assertEquals(numNodes + 1, updUniv.version);
   }
 
+  @Test
+  public void testGetReturnsIndependentDetailsPerVersion() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    Universe first = Universe.get(u.universeUUID);
+    Universe second = Universe.get(u.universeUUID);
+    assertNotSame(first.getUniverseDetails(), second.getUniverseDetails());
+    // Changing a loaded copy must not leak into later reads.
+    first.getUniverseDetails().nodePrefix = "changed-in-memory";
+    assertNotEquals("changed-in-memory", Universe.get(u.universeUUID).getUniverseDetails().nodePrefix);
+
+    Universe.saveDetails(u.universeUUID, universe -> {
+      universe.getUniverseDetails().nodePrefix = "saved";
+    });
+    Universe updated = Universe.get(u.universeUUID);
+    assertEquals("saved", updated.getUniverseDetails().nodePrefix);
+    assertEquals(second.version + 1, updated.version);
+
+    Universe.clearDetailsCache();
+    assertEquals("saved", Universe.get(u.universeUUID).getUniverseDetails().nodePrefix);
+  }
+
+  @Test
+  public void testGetMultipleUniverses() {
+    Universe u1 = createUniverse("Universe-1", defaultCustomer.getCustomerId());
+    Universe u2 = createUniverse("Universe-2", defaultCustomer.getCustomerId());
+    Set<Universe> universes = Universe.get(ImmutableSet.of(u1.universeUUID, u2.universeUUID));
+    assertEquals(2, universes.size());
+    for (Universe universe : universes) {
+      assertNotNull(universe.getUniverseDetails());
+    }
+  }
+
+  @Test
+  public void testUpdateRetrySleepIsBoundedAndJittered() {
+    Set<Long> sleeps = new HashSet<>();
+    for (int attempt = 1; attempt <= 20; attempt++) {
+      for (int i = 0; i < 50; i++) {
+        long sleepMs = Universe.getUpdateRetrySleepMs(attempt);
+        assertTrue(sleepMs >= 0);
+        assertTrue(sleepMs <= Math.min(1000, 20L << attempt));
+        sleeps.add(sleepMs);
+      }
+    }
+    assertTrue(sleeps.size() > 1);
+  }
+
   @Test
   public void testSaveDetails() {
     Universe u = createUniverse(defaultCustomer.getCustomerId());